@@ -12,8 +12,6 @@ public class MementoApplication {
         SpringApplication.run(MementoApplication.class, args);
 
         System.out.println("Hello and welcome!");
-
-        // RedisCacheWarmer starts on ApplicationReadyEvent
     }
     // Setting the timezone with @PostConstruct shows wrong logging times. I directly set the Digital Ocean VM's timezone into Europe/Istanbul
     // Todo: update LocalDateTimes into Instants for different timezones
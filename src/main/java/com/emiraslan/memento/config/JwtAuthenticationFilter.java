@@ -1,14 +1,14 @@
 package com.emiraslan.memento.config;
 
 import com.emiraslan.memento.entity.user.User;
-import com.emiraslan.memento.repository.user.UserRepository;
 import com.emiraslan.memento.service.auth.JwtService;
+import com.emiraslan.memento.service.auth.PrincipalCache;
+import com.emiraslan.memento.service.auth.TokenBlacklist;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -18,15 +18,16 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
-import static com.emiraslan.memento.service.auth.AuthService.BLACKLIST_PREFIX;
-
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // the verified claims of the request's access token, so later steps (logout) don't parse it again
+    public static final String VERIFIED_JWT_ATTRIBUTE = "memento.verifiedJwt";
+
     private final JwtService jwtService;
-    private final UserRepository userRepository;
-    private final StringRedisTemplate redisTemplate;
+    private final PrincipalCache principalCache;
+    private final TokenBlacklist tokenBlacklist;
 
     @Override
     protected void doFilterInternal(
@@ -37,7 +38,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userIdString;
+        final JwtService.VerifiedJwt verifiedJwt;
 
         // checking if the header is for auth, if not, continues the filter chain
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -48,11 +49,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // removing "Bearer " from token
         jwt = authHeader.substring(7);
 
-        // Redis blacklist control
-        String redisKey = BLACKLIST_PREFIX + jwt;
-
-        Boolean isBlacklisted = redisTemplate.hasKey(redisKey);
-        if (isBlacklisted) {
+        // blacklist control, local Bloom filter first and Redis only on a possible hit
+        if (tokenBlacklist.isBlacklisted(jwt)) {
             // return 401
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("Token is invalidated. Please login again.");
@@ -60,7 +58,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         try { // error checking here because global exception handler comes after the jwt security filter
-            userIdString = jwtService.extractUserId(jwt);
+            verifiedJwt = jwtService.verify(jwt); // single parse, signature and expiration are checked here
         } catch (io.jsonwebtoken.ExpiredJwtException e) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("Token has expired. Please use refresh token.");
@@ -70,17 +68,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             response.getWriter().write("Invalid token.");
             return;
         }
+        request.setAttribute(VERIFIED_JWT_ATTRIBUTE, verifiedJwt);
 
-        // checks if an email is entered, and it isn't authenticated in SecurityContext
-        if (userIdString != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-
-            // parsing string into int
-            Integer userId = Integer.parseInt(userIdString);
+        // checks if the token has a user, and it isn't authenticated in SecurityContext
+        if (verifiedJwt.userId() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            // finding the user through their id
-            User user = userRepository.findById(userId).orElse(null);
+            // finding the user through their id, served from the local principal cache
+            User user = principalCache.get(verifiedJwt.userId());
 
-            if (user != null && jwtService.isTokenValid(jwt, user)) {
+            if (user != null) { // token was already verified above, the user only has to still exist
 
                 // if jwt is valid, create an auth token for the user and get their authorities
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
@@ -40,7 +40,9 @@ public class SecurityConfiguration {
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
                                 "/swagger-ui.html",
-                                "/h2-console/**"
+                                "/h2-console/**",
+                                "/actuator/health",
+                                "/actuator/prometheus" // bound to 127.0.0.1:8081 in prod, only the local scraper reaches it
                         ).permitAll()
                                // .anyRequest().permitAll() // FOR TESTING
                         .anyRequest().authenticated() // other paths are locked
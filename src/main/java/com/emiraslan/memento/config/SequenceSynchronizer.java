@@ -0,0 +1,59 @@
+package com.emiraslan.memento.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+// Entity ids come from "<table>_seq" sequences (pooled-lo, 50 ids per nextval) instead of IDENTITY columns.
+// Tables that were filled while the ids were IDENTITY already hold ids the fresh sequences would hand out again,
+// so every sequence is moved past its table's highest id on startup. No-op when the sequence is already ahead.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SequenceSynchronizer {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    // table -> id column
+    private static final Map<String, String> SEQUENCE_TABLES = Map.ofEntries(
+            Map.entry("users", "user_id"),
+            Map.entry("patient_relationships", "relationship_id"),
+            Map.entry("user_devices", "device_id"),
+            Map.entry("refresh_tokens", "token_id"),
+            Map.entry("notification_tokens", "token_id"),
+            Map.entry("saved_locations", "location_id"),
+            Map.entry("daily_logs", "daily_log_id"),
+            Map.entry("alerts", "alert_id"),
+            Map.entry("general_reminders", "reminder_id"),
+            Map.entry("medication_schedules", "schedule_id"),
+            Map.entry("medication_schedule_times", "time_id"),
+            Map.entry("medication_logs", "medication_log_id")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory; // schema (and the sequences) must exist before this runs
+
+    @PostConstruct
+    void synchronizeSequences() {
+        SEQUENCE_TABLES.forEach((table, idColumn) -> {
+            String sequence = table + "_seq";
+
+            // the next nextval must return a value above the highest id, and must not hand out a block another node may still be using
+            List<Long> moved = jdbcTemplate.queryForList(
+                    "SELECT setval('" + sequence + "', GREATEST(t.max_id + 1, s.last_value + " + ALLOCATION_SIZE + "), false) " +
+                    "FROM (SELECT COALESCE(MAX(" + idColumn + "), 0) AS max_id FROM " + table + ") t, " + sequence + " s " +
+                    "WHERE t.max_id >= s.last_value",
+                    Long.class);
+
+            if (!moved.isEmpty()) {
+                log.info("Sequence {} moved past the existing ids of {}, next value: {}", sequence, table, moved.get(0));
+            }
+        });
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -69,8 +70,13 @@ public class AlertController {
     @PreAuthorize("hasAnyAuthority('RELATIVE', 'DOCTOR') and @guard.canViewPatientData(#patientId, principal)")
     @GetMapping("/patient/{patientId}")
     public ResponseEntity<List<AlertResponseDto>> getPatientAlerts(
-            @PathVariable Integer patientId
+            @PathVariable Integer patientId,
+            WebRequest webRequest
     ) {
+        // unchanged since the client's copy: 304 without a body
+        if (webRequest.checkNotModified(alertService.getPatientAlertsVersion(patientId))) {
+            return null;
+        }
         return ResponseEntity.ok(alertService.getPatientAlerts(patientId));
     }
 }
\ No newline at end of file
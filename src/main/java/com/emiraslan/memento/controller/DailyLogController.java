@@ -15,6 +15,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -38,8 +39,13 @@ public class DailyLogController {
             @PathVariable
             @Range(min = 0, max = 90, message = "Days back must be between 0 and 90.")
             Integer days,
-            @AuthenticationPrincipal User user
+            @AuthenticationPrincipal User user,
+            WebRequest webRequest
     ) {
+        // unchanged since the client's copy: 304 without a body
+        if (webRequest.checkNotModified(dailyLogService.getRecentLogsVersion(user.getUserId()))) {
+            return null;
+        }
         return ResponseEntity.ok(dailyLogService.getRecentLogs(user.getUserId(), days));
     }
 
@@ -72,8 +78,12 @@ public class DailyLogController {
             @PathVariable Integer patientId,
             @PathVariable
             @Range(min = 0, max = 90, message = "Days back must be between 0 and 90.")
-            Integer days
+            Integer days,
+            WebRequest webRequest
     ) {
+        if (webRequest.checkNotModified(dailyLogService.getRecentLogsVersion(patientId))) {
+            return null;
+        }
         return ResponseEntity.ok(dailyLogService.getRecentLogs(patientId, days));
     }
 }
\ No newline at end of file
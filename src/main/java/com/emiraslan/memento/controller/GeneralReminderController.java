@@ -13,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -29,7 +30,11 @@ public class GeneralReminderController {
     @Operation(summary = "For patient users.")
     @PreAuthorize("hasAuthority('PATIENT')")
     @GetMapping("/active/me")
-    public ResponseEntity<List<GeneralReminderResponseDto>> getMyActiveReminders(@AuthenticationPrincipal User user) {
+    public ResponseEntity<List<GeneralReminderResponseDto>> getMyActiveReminders(@AuthenticationPrincipal User user, WebRequest webRequest) {
+        // unchanged since the client's copy: 304 without a body
+        if (webRequest.checkNotModified(reminderService.getRemindersVersion(user.getUserId()))) {
+            return null;
+        }
         return ResponseEntity.ok(reminderService.getAllRemindersByPatient(user.getUserId()));
     }
 
@@ -39,7 +44,10 @@ public class GeneralReminderController {
     )
     @PreAuthorize("hasAnyAuthority('DOCTOR', 'RELATIVE') and @guard.canViewPatientData(#patientId, principal)")
     @GetMapping("/active/patient/{patientId}")
-    public ResponseEntity<List<GeneralReminderResponseDto>> getPatientActiveReminders(@PathVariable Integer patientId) {
+    public ResponseEntity<List<GeneralReminderResponseDto>> getPatientActiveReminders(@PathVariable Integer patientId, WebRequest webRequest) {
+        if (webRequest.checkNotModified(reminderService.getRemindersVersion(patientId))) {
+            return null;
+        }
         return ResponseEntity.ok(reminderService.getAllRemindersByPatient(patientId));
     }
 
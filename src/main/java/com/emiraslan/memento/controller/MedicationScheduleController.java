@@ -16,6 +16,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -35,8 +36,13 @@ public class MedicationScheduleController {
     )
     @PreAuthorize("hasAuthority('PATIENT')")
     @GetMapping("/me")
-    public ResponseEntity<List<MedicationScheduleResponseDto>> getMyActiveSchedules(@AuthenticationPrincipal User user) {
-        return ResponseEntity.ok(scheduleService.getActiveSchedulesByPatient(user.getUserId()));
+    public ResponseEntity<List<MedicationScheduleResponseDto>> getMyActiveSchedules(@AuthenticationPrincipal User user, WebRequest webRequest) {
+        // unchanged since the client's copy: 304 without a body
+        String version = scheduleService.getActiveSchedulesVersion(user.getUserId());
+        if (webRequest.checkNotModified(version)) {
+            return null;
+        }
+        return ResponseEntity.ok(scheduleService.getActiveSchedulesByPatient(user.getUserId(), version));
     }
 
     @Operation(
@@ -97,9 +103,14 @@ public class MedicationScheduleController {
     @PreAuthorize("hasAnyAuthority('DOCTOR', 'RELATIVE') and @guard.canViewPatientData(#patientId, principal)")
     @GetMapping("/patient/{patientId}")
     public ResponseEntity<List<MedicationScheduleResponseDto>> getPatientActiveSchedules(
-            @PathVariable Integer patientId
+            @PathVariable Integer patientId,
+            WebRequest webRequest
     ) {
-        return ResponseEntity.ok(scheduleService.getActiveSchedulesByPatient(patientId));
+        String version = scheduleService.getActiveSchedulesVersion(patientId);
+        if (webRequest.checkNotModified(version)) {
+            return null;
+        }
+        return ResponseEntity.ok(scheduleService.getActiveSchedulesByPatient(patientId, version));
     }
 
     @Operation(
@@ -13,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -29,7 +30,11 @@ public class SavedLocationController {
     @Operation(description = "Only Patient users can have locations.")
     @PreAuthorize("hasAuthority('PATIENT')")
     @GetMapping("/me")
-    public ResponseEntity<List<SavedLocationResponseDto>> getMyLocations(@AuthenticationPrincipal User patient) {
+    public ResponseEntity<List<SavedLocationResponseDto>> getMyLocations(@AuthenticationPrincipal User patient, WebRequest webRequest) {
+        // unchanged since the client's copy: 304 without a body
+        if (webRequest.checkNotModified(locationService.getLocationsVersion(patient.getUserId()))) {
+            return null;
+        }
         return ResponseEntity.ok(locationService.getLocationsByPatient(patient.getUserId()));
     }
 
@@ -1,9 +1,11 @@
 package com.emiraslan.memento.controller;
 
+import com.emiraslan.memento.config.JwtAuthenticationFilter;
 import com.emiraslan.memento.dto.request.BiometricToggleRequestDto;
 import com.emiraslan.memento.dto.request.NotificationTokenRegisterRequestDto;
 import com.emiraslan.memento.dto.response.UserDeviceResponseDto;
 import com.emiraslan.memento.entity.user.User;
+import com.emiraslan.memento.service.auth.JwtService;
 import com.emiraslan.memento.service.notification.NotificationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -82,7 +84,8 @@ public class UserDeviceController {
     @DeleteMapping("/logout/{deviceId}")
     public ResponseEntity<Void> logoutDevice(
             @PathVariable Integer deviceId,
-            @RequestHeader(value = "Authorization") String authHeader
+            @RequestHeader(value = "Authorization") String authHeader,
+            @RequestAttribute(name = JwtAuthenticationFilter.VERIFIED_JWT_ATTRIBUTE, required = false) JwtService.VerifiedJwt verifiedJwt
     ) {
 
         String jwt = null;
@@ -90,7 +93,7 @@ public class UserDeviceController {
             jwt = authHeader.substring(7);
         }
 
-        userDeviceService.logoutDevice(deviceId, jwt);
+        userDeviceService.logoutDevice(deviceId, jwt, verifiedJwt);
         return ResponseEntity.ok().build();
     }
 }
@@ -0,0 +1,18 @@
+package com.emiraslan.memento.dto.projection;
+
+import java.time.LocalTime;
+
+// flat row of an active, timed medication. Holds only what the notification cron needs, no entity or lazy proxy
+public record MedicationDispatchEntry(
+        Integer timeId,
+        Integer scheduleId,
+        Integer patientId,
+        String medicationName,
+        String dosage,
+        LocalTime scheduledTime
+) {
+    // 0..1439, index of the entry's bucket in MedicationDispatchIndex
+    public int minuteOfDay() {
+        return scheduledTime.getHour() * 60 + scheduledTime.getMinute();
+    }
+}
@@ -0,0 +1,10 @@
+package com.emiraslan.memento.dto.projection;
+
+// flat row of a device's fcm token, used to (re)build the Redis token cache without loading entities
+public record NotificationTokenEntry(
+        Integer tokenId,
+        Integer userId,
+        Integer deviceId,
+        String fcmToken
+) {
+}
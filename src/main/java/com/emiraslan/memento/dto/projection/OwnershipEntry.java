@@ -0,0 +1,8 @@
+package com.emiraslan.memento.dto.projection;
+
+// owner (the patient) and creator/prescriber of a row, all the SecurityService guards need. creatorId can be null
+public record OwnershipEntry(
+        Integer ownerId,
+        Integer creatorId
+) {
+}
@@ -0,0 +1,11 @@
+package com.emiraslan.memento.dto.projection;
+
+import com.emiraslan.memento.enums.RelationshipType;
+
+// one active relationship of a caregiver, as much as the access checks need
+public record RelationshipAccessEntry(
+        Integer patientId,
+        RelationshipType relationshipType,
+        Boolean isPrimaryContact
+) {
+}
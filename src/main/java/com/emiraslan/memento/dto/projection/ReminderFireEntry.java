@@ -0,0 +1,19 @@
+package com.emiraslan.memento.dto.projection;
+
+import com.emiraslan.memento.enums.RecurrenceRule;
+
+import java.time.LocalDateTime;
+
+// flat row of a general reminder waiting in the reminder timing wheel, no entity or lazy proxy
+public record ReminderFireEntry(
+        Integer reminderId,
+        Integer patientId,
+        String title,
+        LocalDateTime reminderTime,
+        Boolean isRecurring,
+        RecurrenceRule recurrenceRule
+) {
+    public boolean recurring() {
+        return Boolean.TRUE.equals(isRecurring) && recurrenceRule != null;
+    }
+}
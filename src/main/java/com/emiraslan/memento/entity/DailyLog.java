@@ -20,7 +20,8 @@ import java.time.LocalDateTime;
 })
 public class DailyLog {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "daily_logs_seq")
+    @SequenceGenerator(name = "daily_logs_seq", sequenceName = "daily_logs_seq", allocationSize = 50)
     @Column(name = "daily_log_id")
     private Integer dailyLogId;
 
@@ -23,7 +23,8 @@ import java.time.LocalDateTime;
 })
 public class GeneralReminder {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "general_reminders_seq")
+    @SequenceGenerator(name = "general_reminders_seq", sequenceName = "general_reminders_seq", allocationSize = 50)
     @Column(name = "reminder_id")
     private Integer reminderId;
 
@@ -19,7 +19,8 @@ import java.time.LocalDateTime;
 public class NotificationToken {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_tokens_seq")
+    @SequenceGenerator(name = "notification_tokens_seq", sequenceName = "notification_tokens_seq", allocationSize = 50)
     @Column(name = "token_id")
     private Integer tokenId;
 
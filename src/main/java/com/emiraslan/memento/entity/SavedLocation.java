@@ -19,7 +19,8 @@ import java.math.BigDecimal;
 })
 public class SavedLocation {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "saved_locations_seq")
+    @SequenceGenerator(name = "saved_locations_seq", sequenceName = "saved_locations_seq", allocationSize = 50)
     @Column(name = "location_id")
     private Integer locationId;
 
@@ -20,7 +20,8 @@ import java.time.LocalDateTime;
 public class UserDevice {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_devices_seq")
+    @SequenceGenerator(name = "user_devices_seq", sequenceName = "user_devices_seq", allocationSize = 50)
     @Column(name = "device_id")
     private Integer deviceId;
 
@@ -26,7 +26,8 @@ import java.time.LocalDateTime;
 public class MedicationLog {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "medication_logs_seq")
+    @SequenceGenerator(name = "medication_logs_seq", sequenceName = "medication_logs_seq", allocationSize = 50)
     @Column(name = "medication_log_id")
     private Integer medicationLogId;
 
@@ -24,7 +24,8 @@ import java.time.LocalDate;
 public class MedicationSchedule {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "medication_schedules_seq")
+    @SequenceGenerator(name = "medication_schedules_seq", sequenceName = "medication_schedules_seq", allocationSize = 50)
     @Column(name = "schedule_id")
     private Integer scheduleId;
 
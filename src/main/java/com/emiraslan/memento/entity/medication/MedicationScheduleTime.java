@@ -23,7 +23,8 @@ import java.time.LocalTime;
 public class MedicationScheduleTime {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "medication_schedule_times_seq")
+    @SequenceGenerator(name = "medication_schedule_times_seq", sequenceName = "medication_schedule_times_seq", allocationSize = 50)
     @Column(name = "time_id")
     private Integer timeId;
 
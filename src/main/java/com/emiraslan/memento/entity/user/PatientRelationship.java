@@ -22,7 +22,8 @@ import lombok.NoArgsConstructor;
 public class PatientRelationship {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_relationships_seq")
+    @SequenceGenerator(name = "patient_relationships_seq", sequenceName = "patient_relationships_seq", allocationSize = 50)
     @Column(name = "relationship_id")
     private Integer relationshipId;
 
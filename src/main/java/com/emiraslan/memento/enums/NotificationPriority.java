@@ -0,0 +1,6 @@
+package com.emiraslan.memento.enums;
+
+public enum NotificationPriority {
+    HIGH, // emergencies such as fall alerts, delivered with FCM high priority
+    NORMAL // medication and general reminders
+}
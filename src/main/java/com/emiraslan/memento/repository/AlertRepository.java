@@ -1,11 +1,16 @@
 package com.emiraslan.memento.repository;
 
 import com.emiraslan.memento.entity.Alert;
+import com.emiraslan.memento.enums.AlertStatus;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +21,20 @@ public interface AlertRepository extends JpaRepository<Alert, Integer> {
     @EntityGraph(attributePaths = {"patient"})
     Optional<Alert> findByIdWithPatient(Integer alertId);
 
+    // Owner of an alert for the alert guards, read from the FK without loading the alert or the user
+    @Query("SELECT a.patient.userId FROM Alert a WHERE a.alertId = :alertId")
+    Optional<Integer> findPatientIdById(@Param("alertId") Integer alertId);
+
     // All alerts of a patient, ordered from latest on top
     List<Alert> findByPatient_UserIdOrderByAlertTimestampDesc(Integer patientId);
-}
\ No newline at end of file
+
+    // moves a PENDING alert to the new status in a single statement. Cancel and the countdown poller both use it,
+    // whichever commits first wins and the other one gets 0 updated rows
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Alert a SET a.status = :newStatus WHERE a.alertId = :alertId AND a.status = com.emiraslan.memento.enums.AlertStatus.PENDING")
+    int updateStatusIfPending(@Param("alertId") Integer alertId, @Param("newStatus") AlertStatus newStatus);
+
+    // For countdown recovery on startup
+    List<Alert> findByStatusAndAlertTimestampGreaterThanEqual(AlertStatus status, LocalDateTime since);
+}
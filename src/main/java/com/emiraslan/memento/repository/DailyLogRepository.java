@@ -2,6 +2,8 @@ package com.emiraslan.memento.repository;
 
 import com.emiraslan.memento.entity.DailyLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -11,6 +13,10 @@ import java.util.Optional;
 @Repository
 public interface DailyLogRepository extends JpaRepository<DailyLog, Integer> {
 
+    // Owner of a log for the ownership guard, read from the FK without loading the log or the user
+    @Query("SELECT d.patient.userId FROM DailyLog d WHERE d.dailyLogId = :dailyLogId")
+    Optional<Integer> findPatientIdById(@Param("dailyLogId") Integer dailyLogId);
+
     // Patient's logs between given dates (e.g. last week - now, 7 days)
     List<DailyLog> findByPatient_UserIdAndCreatedAtBetween(
             Integer patientId,
@@ -1,21 +1,131 @@
 package com.emiraslan.memento.repository;
 
+import com.emiraslan.memento.dto.projection.OwnershipEntry;
+import com.emiraslan.memento.dto.projection.ReminderFireEntry;
 import com.emiraslan.memento.entity.GeneralReminder;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface GeneralReminderRepository extends JpaRepository<GeneralReminder, Integer> {
 
+    // Patient and creator of a reminder for the modify guard, read from the FKs without loading any user
+    @Query("""
+    SELECT new com.emiraslan.memento.dto.projection.OwnershipEntry(r.patient.userId, c.userId)
+    FROM GeneralReminder r LEFT JOIN r.creator c
+    WHERE r.reminderId = :reminderId
+    """)
+    Optional<OwnershipEntry> findOwnershipById(@Param("reminderId") Integer reminderId);
+
     // All reminders of a patient
     List<GeneralReminder> findByPatient_UserIdOrderByReminderTimeAsc(Integer patientId);
 
-    // Finding reminders and patients for Daily Reminder notification Cron
-    @Query("SELECT r FROM GeneralReminder r JOIN FETCH r.patient WHERE r.reminderTime <= :now")
-    List<GeneralReminder> findDueRemindersWithPatient(@Param("now") LocalDateTime now);
-}
\ No newline at end of file
+    // Fills the reminder timing wheel: every reminder due until the end of the look-ahead window, overdue ones included.
+    // Scalar columns only, patient id is read from the FK without joining users
+    @Query("""
+    SELECT new com.emiraslan.memento.dto.projection.ReminderFireEntry(
+        r.reminderId, r.patient.userId, r.title, r.reminderTime, r.isRecurring, r.recurrenceRule)
+    FROM GeneralReminder r
+    WHERE r.reminderTime <= :until
+    """)
+    List<ReminderFireEntry> findFireEntriesUntil(@Param("until") LocalDateTime until);
+
+    // Same rows for the given reminders, used to put advanced recurring reminders back into the wheel
+    @Query("""
+    SELECT new com.emiraslan.memento.dto.projection.ReminderFireEntry(
+        r.reminderId, r.patient.userId, r.title, r.reminderTime, r.isRecurring, r.recurrenceRule)
+    FROM GeneralReminder r
+    WHERE r.reminderId IN :reminderIds
+    """)
+    List<ReminderFireEntry> findFireEntriesByIds(@Param("reminderIds") Collection<Integer> reminderIds);
+
+    // Set-based advancement of fired recurring reminders, one statement per RecurrenceRule.
+    // Each reminder jumps straight to its first occurrence after :now, so a reminder missed during a downtime fires once, not once per missed period.
+    // The fired (reminderId, reminderTime) pairs come in as two parallel arrays and are joined on both columns: a reminder edited after it
+    // fired (to any time, past or future) no longer matches its fired time and is left alone
+    @Modifying
+    @Query(value = """
+    UPDATE general_reminders r
+    SET reminder_time = r.reminder_time + (FLOOR(EXTRACT(EPOCH FROM (CAST(:now AS timestamp) - r.reminder_time)) / 86400) + 1) * INTERVAL '1 day'
+    FROM unnest(CAST(:reminderIds AS integer[]), CAST(:firedTimes AS timestamp[])) AS f(reminder_id, fired_time)
+    WHERE r.reminder_id = f.reminder_id
+      AND r.reminder_time = f.fired_time
+      AND r.is_recurring = true
+      AND r.recurrence_rule = 'DAILY'
+    """, nativeQuery = true)
+    int advanceDailyReminders(@Param("reminderIds") Integer[] reminderIds, @Param("firedTimes") LocalDateTime[] firedTimes,
+                              @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = """
+    UPDATE general_reminders r
+    SET reminder_time = r.reminder_time + (FLOOR(EXTRACT(EPOCH FROM (CAST(:now AS timestamp) - r.reminder_time)) / 604800) + 1) * INTERVAL '7 days'
+    FROM unnest(CAST(:reminderIds AS integer[]), CAST(:firedTimes AS timestamp[])) AS f(reminder_id, fired_time)
+    WHERE r.reminder_id = f.reminder_id
+      AND r.reminder_time = f.fired_time
+      AND r.is_recurring = true
+      AND r.recurrence_rule = 'WEEKLY'
+    """, nativeQuery = true)
+    int advanceWeeklyReminders(@Param("reminderIds") Integer[] reminderIds, @Param("firedTimes") LocalDateTime[] firedTimes,
+                               @Param("now") LocalDateTime now);
+
+    // age() counts whole calendar months between the two timestamps. Adding months clamps to the month end (Jan 31 + 1 month = Feb 28),
+    // so the month after the counted ones can still be on or before :now: one or two more months are added, whichever is the first after :now
+    @Modifying
+    @Query(value = """
+    UPDATE general_reminders r
+    SET reminder_time = r.reminder_time + make_interval(months => m.months
+            + CASE WHEN r.reminder_time + make_interval(months => m.months + 1) <= CAST(:now AS timestamp) THEN 2
+                   WHEN r.reminder_time + make_interval(months => m.months) <= CAST(:now AS timestamp) THEN 1
+                   ELSE 0 END)
+    FROM (SELECT f.reminder_id, f.fired_time,
+                 CAST(EXTRACT(YEAR FROM age(CAST(:now AS timestamp), f.fired_time)) * 12
+                      + EXTRACT(MONTH FROM age(CAST(:now AS timestamp), f.fired_time)) AS integer) AS months
+          FROM unnest(CAST(:reminderIds AS integer[]), CAST(:firedTimes AS timestamp[])) AS f(reminder_id, fired_time)) m
+    WHERE r.reminder_id = m.reminder_id
+      AND r.reminder_time = m.fired_time
+      AND r.is_recurring = true
+      AND r.recurrence_rule = 'MONTHLY'
+    """, nativeQuery = true)
+    int advanceMonthlyReminders(@Param("reminderIds") Integer[] reminderIds, @Param("firedTimes") LocalDateTime[] firedTimes,
+                                @Param("now") LocalDateTime now);
+
+    // same for years, Feb 29 + 1 year is clamped to Feb 28
+    @Modifying
+    @Query(value = """
+    UPDATE general_reminders r
+    SET reminder_time = r.reminder_time + make_interval(years => m.years
+            + CASE WHEN r.reminder_time + make_interval(years => m.years + 1) <= CAST(:now AS timestamp) THEN 2
+                   WHEN r.reminder_time + make_interval(years => m.years) <= CAST(:now AS timestamp) THEN 1
+                   ELSE 0 END)
+    FROM (SELECT f.reminder_id, f.fired_time,
+                 CAST(EXTRACT(YEAR FROM age(CAST(:now AS timestamp), f.fired_time)) AS integer) AS years
+          FROM unnest(CAST(:reminderIds AS integer[]), CAST(:firedTimes AS timestamp[])) AS f(reminder_id, fired_time)) m
+    WHERE r.reminder_id = m.reminder_id
+      AND r.reminder_time = m.fired_time
+      AND r.is_recurring = true
+      AND r.recurrence_rule = 'YEARLY'
+    """, nativeQuery = true)
+    int advanceYearlyReminders(@Param("reminderIds") Integer[] reminderIds, @Param("firedTimes") LocalDateTime[] firedTimes,
+                               @Param("now") LocalDateTime now);
+
+    // Deletes fired one-shot reminders in a single statement, joined on the fired pairs like the advancement.
+    // Reminders edited to another time or made recurring after they fired stay
+    @Modifying
+    @Query(value = """
+    DELETE FROM general_reminders r
+    USING unnest(CAST(:reminderIds AS integer[]), CAST(:firedTimes AS timestamp[])) AS f(reminder_id, fired_time)
+    WHERE r.reminder_id = f.reminder_id
+      AND r.reminder_time = f.fired_time
+      AND (r.is_recurring = false OR r.recurrence_rule IS NULL)
+    """, nativeQuery = true)
+    int deleteFiredOneShotReminders(@Param("reminderIds") Integer[] reminderIds, @Param("firedTimes") LocalDateTime[] firedTimes);
+}
@@ -2,6 +2,8 @@ package com.emiraslan.memento.repository;
 
 import com.emiraslan.memento.entity.SavedLocation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,6 +12,10 @@ import java.util.Optional;
 @Repository
 public interface SavedLocationRepository extends JpaRepository<SavedLocation, Integer> {
 
+    // Owner of a location for the ownership guard, read from the FK without loading the location or the user
+    @Query("SELECT l.patient.userId FROM SavedLocation l WHERE l.locationId = :locationId")
+    Optional<Integer> findPatientIdById(@Param("locationId") Integer locationId);
+
     // All saved locations of the patient
     List<SavedLocation> findByPatient_UserId(Integer patientId);
 
@@ -1,10 +1,14 @@
 package com.emiraslan.memento.repository.device;
 
+import com.emiraslan.memento.dto.projection.NotificationTokenEntry;
 import com.emiraslan.memento.entity.NotificationToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +20,27 @@ public interface NotificationTokenRepository extends JpaRepository<NotificationT
 
     Optional<NotificationToken> findByUserDevice_DeviceId(Integer deviceId);
 
-    @Query("SELECT n FROM NotificationToken n JOIN FETCH n.userDevice d JOIN FETCH d.user")
-    List<NotificationToken> findAllWithDeviceAndUser();
+    // Tokens of many users in a single query for NotificationTokenCache misses.
+    // Scalar columns only, user id is read from the device's FK without joining users
+    @Query("""
+    SELECT new com.emiraslan.memento.dto.projection.NotificationTokenEntry(
+        n.tokenId, d.user.userId, d.deviceId, n.fcmToken)
+    FROM NotificationToken n JOIN n.userDevice d
+    WHERE d.user.userId IN :userIds AND n.fcmToken IS NOT NULL
+    """)
+    List<NotificationTokenEntry> findTokenEntriesByUserIds(@Param("userIds") Collection<Integer> userIds);
+
+    // Owners of tokens FCM rejected, read before the tokens are deleted so their Redis fields can be removed
+    @Query("""
+    SELECT new com.emiraslan.memento.dto.projection.NotificationTokenEntry(
+        n.tokenId, d.user.userId, d.deviceId, n.fcmToken)
+    FROM NotificationToken n JOIN n.userDevice d
+    WHERE n.fcmToken IN :fcmTokens
+    """)
+    List<NotificationTokenEntry> findTokenEntriesByFcmTokens(@Param("fcmTokens") Collection<String> fcmTokens);
+
+    // Bulk delete of invalid tokens in a single statement, no entity is loaded
+    @Modifying
+    @Query("DELETE FROM NotificationToken n WHERE n.fcmToken IN :fcmTokens")
+    int deleteByFcmTokens(@Param("fcmTokens") Collection<String> fcmTokens);
 }
@@ -6,11 +6,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 
 @Repository
 public interface MedicationLogRepository extends JpaRepository<MedicationLog, Integer> {
@@ -43,4 +45,37 @@ public interface MedicationLogRepository extends JpaRepository<MedicationLog, In
     // Checks if there is a log assigned to a medication schedule. Used to determine if a doctor can edit the schedule or not
     // Relationship chain: Log -> Time -> Schedule.id
     boolean existsByScheduleTime_Schedule_ScheduleId(Integer scheduleId);
-}
\ No newline at end of file
+
+    // For the hourly CRON job: logs every active, unlogged time that is 2 hours past as SKIPPED in a single statement.
+    // The rows never leave the database, nothing is loaded into the heap no matter how many patients there are.
+    // Ids follow the pooled-lo scheme of MedicationLog: every nextval reserves a block of 50 ids, so one nextval is taken per 50 rows
+    @Modifying
+    @Query(value = """
+    WITH overdue AS (
+        SELECT mst.time_id, s.patient_user_id, ROW_NUMBER() OVER () - 1 AS rn
+        FROM medication_schedule_times mst
+        JOIN medication_schedules s ON s.schedule_id = mst.schedule_id
+        WHERE s.is_active = true
+          AND mst.scheduled_time <= :threshold
+          AND NOT EXISTS (
+              SELECT 1 FROM medication_logs ml
+              WHERE ml.schedule_time_id = mst.time_id
+                AND ml.taken_at >= :startOfDay
+                AND ml.taken_at <= :now
+          )
+    ),
+    id_blocks AS (
+        SELECT nextval('medication_logs_seq') AS block_start, ROW_NUMBER() OVER () - 1 AS block_no
+        FROM generate_series(1, CAST(CEIL((SELECT COUNT(*) FROM overdue) / 50.0) AS integer))
+    )
+    INSERT INTO medication_logs (medication_log_id, schedule_time_id, patient_user_id, taken_at, status)
+    SELECT b.block_start + o.rn % 50, o.time_id, o.patient_user_id, :now, 'SKIPPED'
+    FROM overdue o
+    JOIN id_blocks b ON b.block_no = o.rn / 50
+    """, nativeQuery = true)
+    int insertSkippedLogsForOverdueTimes(
+            @Param("threshold") LocalTime threshold,
+            @Param("startOfDay") LocalDateTime startOfDay,
+            @Param("now") LocalDateTime now
+    );
+}
@@ -1,5 +1,6 @@
 package com.emiraslan.memento.repository.medication;
 
+import com.emiraslan.memento.dto.projection.OwnershipEntry;
 import com.emiraslan.memento.entity.medication.MedicationSchedule;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -11,16 +12,33 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MedicationScheduleRepository extends JpaRepository<MedicationSchedule, Integer> {
 
+    // Patient and prescribing doctor of a schedule for the modify guard, read from the FKs without loading any user
+    @Query("""
+    SELECT new com.emiraslan.memento.dto.projection.OwnershipEntry(s.patient.userId, d.userId)
+    FROM MedicationSchedule s LEFT JOIN s.doctor d
+    WHERE s.scheduleId = :scheduleId
+    """)
+    Optional<OwnershipEntry> findOwnershipById(@Param("scheduleId") Integer scheduleId);
+
     // Brings all active medication a patient is taking
     List<MedicationSchedule> findByPatient_UserIdAndIsActiveTrue(Integer patientId);
 
     // All past medication assigned to a patient
     Page<MedicationSchedule> findByPatient_UserIdAndIsActiveFalse(Integer patientId, Pageable pageable);
 
+    // ids of the schedules the nightly CRON job is about to deactivate, so they can be dropped from the dispatch index
+    @Query("SELECT m.scheduleId FROM MedicationSchedule m WHERE m.isActive = true AND m.endDate < :today")
+    List<Integer> findExpiredActiveScheduleIds(@Param("today") LocalDate today);
+
+    // patients whose active schedule view changes with the nightly deactivation
+    @Query("SELECT DISTINCT m.patient.userId FROM MedicationSchedule m WHERE m.isActive = true AND m.endDate < :today")
+    List<Integer> findExpiredActivePatientIds(@Param("today") LocalDate today);
+
     // For CRON job automatic deactivation of a schedule upon endDate
     @Modifying(clearAutomatically = true)
     @Query("UPDATE MedicationSchedule m SET m.isActive = false WHERE m.isActive = true AND m.endDate < :today")
@@ -1,44 +1,48 @@
 package com.emiraslan.memento.repository.medication;
 
+import com.emiraslan.memento.dto.projection.MedicationDispatchEntry;
 import com.emiraslan.memento.entity.medication.MedicationScheduleTime;
 import io.lettuce.core.dynamic.annotation.Param;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MedicationScheduleTimeRepository extends JpaRepository<MedicationScheduleTime, Integer> {
 
+    // Patient of a schedule time for the ownership guard, one join to the schedule and no entity loaded
+    @Query("SELECT s.patient.userId FROM MedicationScheduleTime mst JOIN mst.schedule s WHERE mst.timeId = :timeId")
+    Optional<Integer> findPatientIdById(@Param("timeId") Integer timeId);
+
     // Brings all times assigned to a prescription
     List<MedicationScheduleTime> findBySchedule_ScheduleId(Integer scheduleId);
 
-    // brings "now" from all times in active schedules
-    List<MedicationScheduleTime> findBySchedule_IsActiveTrueAndScheduledTime(LocalTime scheduledTime);
-
-    // Brings all times belonging to the schedules in the scheduleId list
-    List<MedicationScheduleTime> findBySchedule_ScheduleIdIn(List<Integer> scheduleIds);
-
-    // Avoiding 1+2n query in service method by join fetching schedule and patient data
+    // Builds the in-memory MedicationDispatchIndex on startup. Scalar columns only, patient id is read from the FK without joining users
     @Query("""
-    SELECT mst FROM MedicationScheduleTime mst
-    JOIN FETCH mst.schedule s
-    JOIN FETCH s.patient
+    SELECT new com.emiraslan.memento.dto.projection.MedicationDispatchEntry(
+        mst.timeId, s.scheduleId, s.patient.userId, s.medicationName, s.dosage, mst.scheduledTime)
+    FROM MedicationScheduleTime mst
+    JOIN mst.schedule s
     WHERE s.isActive = true
-      AND mst.scheduledTime <= :threshold
-      AND NOT EXISTS (
-          SELECT 1 FROM MedicationLog ml
-          WHERE ml.scheduleTime = mst
-            AND ml.takenAt >= :startOfDay
-            AND ml.takenAt <= :now
-      )
+      AND mst.scheduledTime IS NOT NULL
     """)
-    List<MedicationScheduleTime> findOverdueTimesWithoutLogsToday(
-            @Param("threshold") LocalTime threshold,
-            @Param("startOfDay") LocalDateTime startOfDay,
-            @Param("now") LocalDateTime now
-    );
-}
\ No newline at end of file
+    List<MedicationDispatchEntry> findAllActiveDispatchEntries();
+
+    // Same rows for a single schedule, used to refresh the index after a schedule is created or updated
+    @Query("""
+    SELECT new com.emiraslan.memento.dto.projection.MedicationDispatchEntry(
+        mst.timeId, s.scheduleId, s.patient.userId, s.medicationName, s.dosage, mst.scheduledTime)
+    FROM MedicationScheduleTime mst
+    JOIN mst.schedule s
+    WHERE s.scheduleId = :scheduleId
+      AND s.isActive = true
+      AND mst.scheduledTime IS NOT NULL
+    """)
+    List<MedicationDispatchEntry> findActiveDispatchEntriesBySchedule(@Param("scheduleId") Integer scheduleId);
+
+    // Brings all times belonging to the schedules in the scheduleId list
+    List<MedicationScheduleTime> findBySchedule_ScheduleIdIn(List<Integer> scheduleIds);
+}
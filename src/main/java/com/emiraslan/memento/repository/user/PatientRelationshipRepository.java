@@ -1,5 +1,6 @@
 package com.emiraslan.memento.repository.user;
 
+import com.emiraslan.memento.dto.projection.RelationshipAccessEntry;
 import com.emiraslan.memento.entity.user.PatientRelationship;
 import com.emiraslan.memento.enums.RelationshipType;
 import org.springframework.data.domain.Pageable;
@@ -31,6 +32,15 @@ public interface PatientRelationshipRepository extends JpaRepository<PatientRela
     // checks if a relationship already exists
     Optional<PatientRelationship> findByPatient_UserIdAndCaregiver_UserId(Integer patientId, Integer caregiverId);
 
+    // All active relationships of a caregiver in one query, for RelationshipAccessCache. Scalar columns only, no user is loaded
+    @Query("""
+        SELECT new com.emiraslan.memento.dto.projection.RelationshipAccessEntry(
+            r.patient.userId, r.relationshipType, r.isPrimaryContact)
+        FROM PatientRelationship r
+        WHERE r.caregiver.userId = :caregiverId AND r.isActive = true
+    """)
+    List<RelationshipAccessEntry> findActiveAccessEntriesByCaregiver(@Param("caregiverId") Integer caregiverId);
+
     // checks if a user is primary contact and active. Used for alert acknowledgements
     boolean existsByPatient_UserIdAndCaregiver_UserIdAndIsPrimaryContactTrueAndIsActiveTrue(Integer patientId, Integer caregiverId);
 
@@ -0,0 +1,65 @@
+package com.emiraslan.memento.security;
+
+import com.emiraslan.memento.dto.projection.OwnershipEntry;
+import com.emiraslan.memento.repository.AlertRepository;
+import com.emiraslan.memento.repository.DailyLogRepository;
+import com.emiraslan.memento.repository.GeneralReminderRepository;
+import com.emiraslan.memento.repository.SavedLocationRepository;
+import com.emiraslan.memento.repository.medication.MedicationScheduleRepository;
+import com.emiraslan.memento.repository.medication.MedicationScheduleTimeRepository;
+import com.emiraslan.memento.util.RequestIdentityMap;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Resolves who owns a row with one scalar query on its FK columns, no entity or lazy association is loaded.
+// Results are kept for the rest of the request, so a guard evaluated twice (or a service asking again) costs nothing
+@Component
+@RequiredArgsConstructor
+public class OwnershipResolver {
+
+    private final SavedLocationRepository locationRepository;
+    private final GeneralReminderRepository reminderRepository;
+    private final DailyLogRepository dailyLogRepository;
+    private final AlertRepository alertRepository;
+    private final MedicationScheduleRepository medicationScheduleRepository;
+    private final MedicationScheduleTimeRepository timesRepository;
+
+    public Integer locationOwner(Integer locationId) {
+        return RequestIdentityMap.computeIfAbsent("owner:location", locationId, () ->
+                locationRepository.findPatientIdById(locationId)
+                        .orElseThrow(() -> new EntityNotFoundException("LOCATION_NOT_FOUND")));
+    }
+
+    public Integer dailyLogOwner(Integer logId) {
+        return RequestIdentityMap.computeIfAbsent("owner:dailyLog", logId, () ->
+                dailyLogRepository.findPatientIdById(logId)
+                        .orElseThrow(() -> new EntityNotFoundException("DAILY_LOG_NOT_FOUND")));
+    }
+
+    public Integer alertOwner(Integer alertId) {
+        return RequestIdentityMap.computeIfAbsent("owner:alert", alertId, () ->
+                alertRepository.findPatientIdById(alertId)
+                        .orElseThrow(() -> new EntityNotFoundException("ALERT_NOT_FOUND")));
+    }
+
+    public Integer scheduleTimeOwner(Integer timeId) {
+        return RequestIdentityMap.computeIfAbsent("owner:scheduleTime", timeId, () ->
+                timesRepository.findPatientIdById(timeId)
+                        .orElseThrow(() -> new EntityNotFoundException("SCHEDULE_TIME_NOT_FOUND")));
+    }
+
+    // ownerId is the patient, creatorId the user who created the reminder (null for the patient's own)
+    public OwnershipEntry reminderOwnership(Integer reminderId) {
+        return RequestIdentityMap.computeIfAbsent("owner:reminder", reminderId, () ->
+                reminderRepository.findOwnershipById(reminderId)
+                        .orElseThrow(() -> new EntityNotFoundException("GENERAL_REMINDER_NOT_FOUND")));
+    }
+
+    // ownerId is the patient, creatorId the prescribing doctor
+    public OwnershipEntry scheduleOwnership(Integer scheduleId) {
+        return RequestIdentityMap.computeIfAbsent("owner:schedule", scheduleId, () ->
+                medicationScheduleRepository.findOwnershipById(scheduleId)
+                        .orElseThrow(() -> new EntityNotFoundException("SCHEDULE_NOT_FOUND")));
+    }
+}
@@ -3,13 +3,22 @@ package com.emiraslan.memento.security;
 import com.emiraslan.memento.entity.user.User;
 import com.emiraslan.memento.exception.RateLimitExceededException;
 import io.github.bucket4j.Bucket;
-import io.github.bucket4j.BucketConfiguration;
 import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.distributed.proxy.optimization.DefaultOptimizationListener;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimization;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
 import io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -22,32 +31,75 @@ import java.time.Duration;
 public class RateLimitInterceptor implements HandlerInterceptor {
 
     private final LettuceBasedProxyManager<byte[]> proxyManager;
+    private final MeterRegistry meterRegistry;
+    private final RateLimitProperties rateLimitProperties;
+
+    // route + role -> bucket limits, compiled once from memento.rate-limit.policies
+    private RateLimitPolicyTrie policyTrie;
+
+    // a node may spend this many tokens / this long locally before it syncs the bucket with Redis
+    @Value("${memento.rate-limit.local.max-unsynced-tokens}")
+    private long maxUnsyncedTokens;
+
+    @Value("${memento.rate-limit.local.max-unsynced-millis}")
+    private long maxUnsyncedMillis;
+
+    // bucket proxies hold the local (not yet synced) state, so the same proxy has to serve every request of a key
+    private final Cache<String, Bucket> buckets = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofMinutes(2))
+            .build();
+
+    // counts the Redis round-trips the local tier saved, shared by all buckets
+    private final DefaultOptimizationListener optimizationListener = new DefaultOptimizationListener();
+    private Optimization localSyncOptimization;
+
+    @PostConstruct
+    void init() {
+        policyTrie = RateLimitPolicyTrie.compile(rateLimitProperties.getPolicies());
+
+        localSyncOptimization = Optimizations
+                .delaying(new DelayParameters(maxUnsyncedTokens, Duration.ofMillis(maxUnsyncedMillis)))
+                .withListener(optimizationListener);
+
+        FunctionCounter.builder("memento.ratelimit.redis.skipped", optimizationListener, DefaultOptimizationListener::getSkipCount)
+                .description("Rate limit checks answered locally without a Redis call")
+                .register(meterRegistry);
+        FunctionCounter.builder("memento.ratelimit.redis.merged", optimizationListener, DefaultOptimizationListener::getMergeCount)
+                .description("Rate limit checks merged into another node-local Redis call")
+                .register(meterRegistry);
+    }
 
     @Override
     public boolean preHandle(HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
         String path = request.getRequestURI();
+        User user = currentUser();
 
-        String key = resolveKey(request, path); // redis key: ip or id
-        BucketConfiguration bucketConfiguration = resolveBucketConfig(path); // bucket limit and refill
+        // the most specific policy of the route for the caller's role
+        RateLimitPolicyTrie.ResolvedPolicy policy = policyTrie.match(path, user != null ? user.getRole() : null);
+        if (policy == null || policy.exempt()) {
+            return true;
+        }
 
-        // get the key's bucket from redis, create one if the bucket doesn't exist
-        // if the bucket exists, the lambda function doesn't work because the bucket already knows its attributes
-        Bucket bucket = proxyManager.builder().build(key.getBytes(), () -> bucketConfiguration);
+        String key = resolveKey(request, policy, user); // redis key: policy + ip or id
+
+        // get the key's bucket from the local cache, or bind one to its Redis bucket (created in Redis on first use)
+        Bucket bucket = buckets.get(key, k -> buildBucket(k, policy));
 
         // spend 1 token from the bucket
         ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
 
         if (probe.isConsumed()) {
-            // send the remaining limit in auth endpoints
-            if (path.startsWith("/api/v1/auth")) {
+            // send the remaining limit for strict policies (auth endpoints)
+            if (policy.strict()) {
                 response.setHeader("X-Rate-Limit-Remaining", String.valueOf(probe.getRemainingTokens()));
             }
             return true;
         } else {
             long waitForRefill = probe.getNanosToWaitForRefill() / 1_000_000_000;
 
-            // send the time-out info in auth endpoints
-            if (path.startsWith("/api/v1/auth")) {
+            // send the time-out info for strict policies (auth endpoints)
+            if (policy.strict()) {
                 response.setHeader("X-Rate-Limit-Retry-After-Seconds", String.valueOf(waitForRefill));
             }
 
@@ -55,37 +107,38 @@ public class RateLimitInterceptor implements HandlerInterceptor {
         }
     }
 
-    private String resolveKey(HttpServletRequest request, String path) {
-        // the key contains the ip in case of auth endpoints because the user isn't authenticated yet
-        if (path.startsWith("/api/v1/auth")) {
-            return "rate_limit:ip:" + request.getRemoteAddr();
+    private String resolveKey(HttpServletRequest request, RateLimitPolicyTrie.ResolvedPolicy policy, User user) {
+        // buckets are per policy, so a caller's fall alerts don't spend the tokens of their dashboard polling
+        String prefix = "rate_limit:" + policy.name() + ":";
+
+        // the key contains the user's id if they are logged in and the policy isn't ip based (auth endpoints, the user isn't authenticated yet)
+        if (policy.keyBy() == RateLimitProperties.KeyBy.USER && user != null) {
+            return prefix + "user:" + user.getUserId();
         }
 
-        // get the security context if the request isn't made to /auth
+        // fallback to ip address for insurance
+        return prefix + "ip:" + request.getRemoteAddr();
+    }
+
+    private User currentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
 
         // if JWT is valid and user is logged in
-        if (auth != null && auth.isAuthenticated() && !auth.getPrincipal().equals("anonymousUser")) {
-            User user = (User) auth.getPrincipal();
-            // the key contains the user's id if they are logged in
-            return "rate_limit:user:" + user.getUserId();
+        if (auth != null && auth.isAuthenticated() && auth.getPrincipal() instanceof User user) {
+            return user;
         }
-
-        // fallback to ip address for insurance
-        return "rate_limit:ip:" + request.getRemoteAddr();
+        return null;
     }
 
-    private BucketConfiguration resolveBucketConfig(String path) {
-        // maximum 5 request to /auth endpoints in 1 minute
-        if (path.startsWith("/api/v1/auth")) {
-            return BucketConfiguration.builder()
-                    .addLimit(limit -> limit.capacity(5).refillGreedy(5, Duration.ofMinutes(1)))
-                    .build();
+    private Bucket buildBucket(String key, RateLimitPolicyTrie.ResolvedPolicy policy) {
+        // strict limits protect against brute force, they are always checked against Redis
+        if (policy.strict()) {
+            return proxyManager.builder().build(key.getBytes(), policy::bucketConfiguration);
         }
 
-        // all remaining endpoints. Starts with 30 tokens for possible multiple requests on start. Refills 30 tokens in 1 minutes
-        return BucketConfiguration.builder()
-                .addLimit(limit -> limit.capacity(30).refillGreedy(30, Duration.ofMinutes(1)))
-                .build();
+        // everything else spends tokens locally and syncs with Redis in batches
+        return proxyManager.builder()
+                .withOptimization(localSyncOptimization)
+                .build(key.getBytes(), policy::bucketConfiguration);
     }
 }
@@ -0,0 +1,143 @@
+package com.emiraslan.memento.security;
+
+import com.emiraslan.memento.enums.UserRole;
+import io.github.bucket4j.BucketConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Path segment trie of the rate limit policies. A lookup walks the request path once (plus backtracking over "*" nodes),
+// literal segments win over "*", "*" wins over "**", and at the same node a role specific policy wins over a role-agnostic one.
+public class RateLimitPolicyTrie {
+
+    public record ResolvedPolicy(String name, Set<UserRole> roles, boolean exempt, boolean strict,
+                                 RateLimitProperties.KeyBy keyBy, BucketConfiguration bucketConfiguration) {
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private Node wildcard; // "*"
+        private final List<ResolvedPolicy> exactPolicies = new ArrayList<>(); // pattern ends at this node
+        private final List<ResolvedPolicy> remainderPolicies = new ArrayList<>(); // pattern ends with "**" at this node
+    }
+
+    private final Node root = new Node();
+
+    private RateLimitPolicyTrie() {
+    }
+
+    public static RateLimitPolicyTrie compile(List<RateLimitProperties.Policy> policies) {
+        RateLimitPolicyTrie trie = new RateLimitPolicyTrie();
+        Set<String> names = new HashSet<>();
+
+        for (RateLimitProperties.Policy policy : policies) {
+            if (policy.getName() == null || !names.add(policy.getName())) {
+                throw new IllegalStateException("RATE_LIMIT_POLICY_NAME_MISSING_OR_DUPLICATE: " + policy.getName());
+            }
+            if (policy.getPattern() == null || !policy.getPattern().startsWith("/")) {
+                throw new IllegalStateException("RATE_LIMIT_POLICY_PATTERN_INVALID: " + policy.getName());
+            }
+            trie.insert(policy.getPattern(), resolve(policy));
+        }
+        return trie;
+    }
+
+    // the most specific policy for the path and role, null if no policy covers the path
+    public ResolvedPolicy match(String path, UserRole role) {
+        return match(root, splitPath(path), 0, role);
+    }
+
+    private void insert(String pattern, ResolvedPolicy policy) {
+        String[] segments = splitPath(pattern);
+        Node node = root;
+
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+
+            if (segment.equals("**")) {
+                if (i != segments.length - 1) {
+                    throw new IllegalStateException("RATE_LIMIT_POLICY_PATTERN_INVALID: " + policy.name());
+                }
+                node.remainderPolicies.add(policy);
+                return;
+            }
+
+            if (segment.equals("*")) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            } else {
+                node = node.children.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        node.exactPolicies.add(policy);
+    }
+
+    private ResolvedPolicy match(Node node, String[] segments, int index, UserRole role) {
+        if (index == segments.length) {
+            ResolvedPolicy exact = pick(node.exactPolicies, role);
+            if (exact != null) {
+                return exact;
+            }
+        } else {
+            Node child = node.children.get(segments[index]);
+            if (child != null) {
+                ResolvedPolicy matched = match(child, segments, index + 1, role);
+                if (matched != null) {
+                    return matched;
+                }
+            }
+            if (node.wildcard != null) {
+                ResolvedPolicy matched = match(node.wildcard, segments, index + 1, role);
+                if (matched != null) {
+                    return matched;
+                }
+            }
+        }
+        return pick(node.remainderPolicies, role);
+    }
+
+    private static ResolvedPolicy pick(List<ResolvedPolicy> candidates, UserRole role) {
+        ResolvedPolicy roleAgnostic = null;
+
+        for (ResolvedPolicy candidate : candidates) {
+            if (candidate.roles().isEmpty()) {
+                if (roleAgnostic == null) {
+                    roleAgnostic = candidate;
+                }
+            } else if (role != null && candidate.roles().contains(role)) {
+                return candidate;
+            }
+        }
+        return roleAgnostic;
+    }
+
+    private static ResolvedPolicy resolve(RateLimitProperties.Policy policy) {
+        if (policy.isExempt()) {
+            return new ResolvedPolicy(policy.getName(), Set.copyOf(policy.getRoles()), true, false, policy.getKeyBy(), null);
+        }
+        if (policy.getCapacity() <= 0 || policy.getRefillTokens() <= 0) {
+            throw new IllegalStateException("RATE_LIMIT_POLICY_BANDWIDTH_INVALID: " + policy.getName());
+        }
+
+        // built once per policy, shared by every bucket of the policy
+        BucketConfiguration bucketConfiguration = BucketConfiguration.builder()
+                .addLimit(limit -> limit.capacity(policy.getCapacity()).refillGreedy(policy.getRefillTokens(), policy.getRefillPeriod()))
+                .build();
+
+        return new ResolvedPolicy(policy.getName(), Set.copyOf(policy.getRoles()), false, policy.isStrict(),
+                policy.getKeyBy(), bucketConfiguration);
+    }
+
+    private static String[] splitPath(String path) {
+        return Arrays.stream(path.split("/"))
+                .filter(segment -> !segment.isEmpty())
+                .toArray(String[]::new);
+    }
+}
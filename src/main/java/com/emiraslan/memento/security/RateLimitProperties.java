@@ -0,0 +1,52 @@
+package com.emiraslan.memento.security;
+
+import com.emiraslan.memento.enums.UserRole;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+// Rate limit policies bound from "memento.rate-limit.policies[n].*", compiled into a RateLimitPolicyTrie on startup
+@Component
+@ConfigurationProperties(prefix = "memento.rate-limit")
+@Getter
+@Setter
+public class RateLimitProperties {
+
+    private List<Policy> policies = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Policy {
+        private String name;
+
+        // "/" separated segments. "*" matches one segment, a trailing "**" matches any remaining segments (including none)
+        private String pattern;
+
+        // roles the policy applies to, empty means every caller (also anonymous ones)
+        private Set<UserRole> roles = EnumSet.noneOf(UserRole.class);
+
+        // exempt routes are never limited
+        private boolean exempt = false;
+
+        // strict buckets are always checked against Redis and send the rate limit headers
+        private boolean strict = false;
+
+        private KeyBy keyBy = KeyBy.USER;
+
+        private long capacity;
+        private long refillTokens;
+        private Duration refillPeriod = Duration.ofMinutes(1);
+    }
+
+    public enum KeyBy {
+        IP,
+        USER // falls back to the ip for anonymous callers
+    }
+}
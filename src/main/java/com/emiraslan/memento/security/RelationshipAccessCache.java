@@ -0,0 +1,106 @@
+package com.emiraslan.memento.security;
+
+import com.emiraslan.memento.dto.projection.RelationshipAccessEntry;
+import com.emiraslan.memento.enums.RelationshipType;
+import com.emiraslan.memento.repository.user.PatientRelationshipRepository;
+import com.emiraslan.memento.util.TransactionUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+// Local cache of which patients a caregiver may access, for the SecurityService guards.
+// One query loads all active relationships of a caregiver, after that every guard check is an in-memory lookup.
+// Relationship changes are broadcast over Redis pub/sub and every node drops the caregiver's entry. The TTL bounds staleness if a message is lost.
+@Component
+@RequiredArgsConstructor
+public class RelationshipAccessCache {
+
+    private static final String INVALIDATION_CHANNEL = "access:invalidate";
+
+    private final PatientRelationshipRepository relationshipRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${memento.auth.access-cache.max-size}")
+    private long maxSize;
+
+    @Value("${memento.auth.access-cache.ttl-seconds}")
+    private long ttlSeconds;
+
+    private Cache<Integer, CaregiverAccess> accessByCaregiver;
+
+    // sorted patient ids per flag, immutable once built
+    private record CaregiverAccess(int[] activePatients, int[] primaryContactPatients, int[] doctorPatients) {
+    }
+
+    @PostConstruct
+    void init() {
+        accessByCaregiver = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+
+        listenerContainer.addMessageListener((message, pattern) -> accessByCaregiver.invalidate(Integer.valueOf(new String(message.getBody()))),
+                new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public boolean hasActiveRelationship(Integer patientId, Integer caregiverId) {
+        return contains(accessOf(caregiverId).activePatients(), patientId);
+    }
+
+    public boolean isPrimaryContact(Integer patientId, Integer caregiverId) {
+        return contains(accessOf(caregiverId).primaryContactPatients(), patientId);
+    }
+
+    // active relationship of type DOCTOR
+    public boolean isDoctorOf(Integer patientId, Integer caregiverId) {
+        return contains(accessOf(caregiverId).doctorPatients(), patientId);
+    }
+
+    // drops the caregiver's access on every node once the caller's transaction commits
+    public void invalidate(Integer caregiverId) {
+        TransactionUtil.runAfterCommit(() -> {
+            // the local copy is dropped right away, the message also reaches this node but that is harmless
+            accessByCaregiver.invalidate(caregiverId);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.valueOf(caregiverId));
+        });
+    }
+
+    private CaregiverAccess accessOf(Integer caregiverId) {
+        return accessByCaregiver.get(caregiverId, this::load);
+    }
+
+    private CaregiverAccess load(Integer caregiverId) {
+        List<RelationshipAccessEntry> entries = relationshipRepository.findActiveAccessEntriesByCaregiver(caregiverId);
+
+        return new CaregiverAccess(
+                sortedPatientIds(entries, false, false),
+                sortedPatientIds(entries, true, false),
+                sortedPatientIds(entries, false, true)
+        );
+    }
+
+    private static int[] sortedPatientIds(List<RelationshipAccessEntry> entries, boolean primaryOnly, boolean doctorOnly) {
+        return entries.stream()
+                .filter(entry -> !primaryOnly || Boolean.TRUE.equals(entry.isPrimaryContact()))
+                .filter(entry -> !doctorOnly || entry.relationshipType() == RelationshipType.DOCTOR)
+                .mapToInt(RelationshipAccessEntry::patientId)
+                .sorted()
+                .toArray();
+    }
+
+    // a caregiver has a handful of patients (a doctor a few hundred), a binary search over them needs no hashing or boxing
+    private static boolean contains(int[] sortedPatientIds, Integer patientId) {
+        return patientId != null && Arrays.binarySearch(sortedPatientIds, patientId) >= 0;
+    }
+}
@@ -1,15 +1,13 @@
 package com.emiraslan.memento.security;
 
+import com.emiraslan.memento.dto.projection.OwnershipEntry;
 import com.emiraslan.memento.dto.request.GeneralReminderRequestDto;
 import com.emiraslan.memento.dto.request.MedicationScheduleRequestDto;
 import com.emiraslan.memento.entity.UserDevice;
 import com.emiraslan.memento.entity.user.User;
 import com.emiraslan.memento.enums.RelationshipType;
 import com.emiraslan.memento.enums.UserRole;
-import com.emiraslan.memento.repository.*;
 import com.emiraslan.memento.repository.device.UserDeviceRepository;
-import com.emiraslan.memento.repository.medication.MedicationScheduleRepository;
-import com.emiraslan.memento.repository.medication.MedicationScheduleTimeRepository;
 import com.emiraslan.memento.repository.user.PatientRelationshipRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -21,19 +19,13 @@ import org.springframework.stereotype.Service;
 public class SecurityService {
 
     private final PatientRelationshipRepository relationshipRepository;
-    private final SavedLocationRepository locationRepository;
-    private final GeneralReminderRepository reminderRepository;
-    private final DailyLogRepository dailyLogRepository;
-    private final AlertRepository alertRepository;
-    private final MedicationScheduleRepository medicationScheduleRepository;
-    private final MedicationScheduleTimeRepository timesRepository;
+    private final OwnershipResolver ownershipResolver;
     private final UserDeviceRepository userDeviceRepository;
+    private final RelationshipAccessCache accessCache;
 
     // --- helper method ----
     private boolean hasActiveRelationship(Integer patientId, Integer caregiverId){
-        return relationshipRepository.findByPatient_UserIdAndCaregiver_UserId(patientId, caregiverId)
-                .map(rel -> Boolean.TRUE.equals(rel.getIsActive()))
-                .orElse(false);
+        return accessCache.hasActiveRelationship(patientId, caregiverId);
     }
 
     // mutual method to check for relationships
@@ -75,14 +67,10 @@ public class SecurityService {
     // ========================================================================
 
     public boolean isLocationOwner(Integer locationId, User user){
-        return locationRepository.findById(locationId)
-                .map(location -> {
-                    if (!location.getPatient().getUserId().equals(user.getUserId())){
-                        throw new AccessDeniedException("NOT_LOCATION_OWNER");
-                    }
-                    return true;
-                })
-                .orElseThrow(() -> new EntityNotFoundException("LOCATION_NOT_FOUND"));
+        if (!ownershipResolver.locationOwner(locationId).equals(user.getUserId())){
+            throw new AccessDeniedException("NOT_LOCATION_OWNER");
+        }
+        return true;
     }
 
     // ========================================================================
@@ -108,17 +96,14 @@ public class SecurityService {
 
     // only the patient, or the creator, can update/delete the reminder
     public boolean canModifyReminder(Integer reminderId, User user) {
-        return reminderRepository.findById(reminderId)
-                .map(reminder -> {
-                    boolean isPatient = reminder.getPatient().getUserId().equals(user.getUserId());
-                    boolean isCreator = reminder.getCreator() != null && reminder.getCreator().getUserId().equals(user.getUserId());
+        OwnershipEntry ownership = ownershipResolver.reminderOwnership(reminderId);
+        boolean isPatient = ownership.ownerId().equals(user.getUserId());
+        boolean isCreator = user.getUserId().equals(ownership.creatorId());
 
-                    if (!isPatient && !isCreator) {
-                        throw new AccessDeniedException("YOU_CAN_ONLY_MODIFY_YOUR_OWN_OR_CREATED_REMINDERS");
-                    }
-                    return true;
-                })
-                .orElseThrow(() -> new EntityNotFoundException("GENERAL_REMINDER_NOT_FOUND"));
+        if (!isPatient && !isCreator) {
+            throw new AccessDeniedException("YOU_CAN_ONLY_MODIFY_YOUR_OWN_OR_CREATED_REMINDERS");
+        }
+        return true;
     }
 
     // ========================================================================
@@ -126,14 +111,10 @@ public class SecurityService {
     // ========================================================================
 
     public boolean isDailyLogOwner(Integer logId, User user) {
-        return dailyLogRepository.findById(logId)
-                .map(log -> {
-                    if (!log.getPatient().getUserId().equals(user.getUserId())) {
-                        throw new AccessDeniedException("NOT_DAILY_LOG_OWNER");
-                    }
-                    return true;
-                })
-                .orElseThrow(() -> new EntityNotFoundException("DAILY_LOG_NOT_FOUND"));
+        if (!ownershipResolver.dailyLogOwner(logId).equals(user.getUserId())) {
+            throw new AccessDeniedException("NOT_DAILY_LOG_OWNER");
+        }
+        return true;
     }
 
     // ========================================================================
@@ -141,25 +122,18 @@ public class SecurityService {
     // ========================================================================
 
     public boolean isAlertOwner(Integer alertId, User user) {
-        return alertRepository.findById(alertId)
-                .map(alert -> {
-                    if (!alert.getPatient().getUserId().equals(user.getUserId())) {
-                        throw new AccessDeniedException("NOT_ALERT_OWNER");
-                    }
-                    return true;
-                })
-                .orElseThrow(() -> new EntityNotFoundException("ALERT_NOT_FOUND"));
+        if (!ownershipResolver.alertOwner(alertId).equals(user.getUserId())) {
+            throw new AccessDeniedException("NOT_ALERT_OWNER");
+        }
+        return true;
     }
 
     public boolean canAcknowledgeAlert(Integer alertId, User user) {
         // find patient id from alert
-        Integer patientId = alertRepository.findById(alertId)
-                .map(alert -> alert.getPatient().getUserId())
-                .orElseThrow(() -> new EntityNotFoundException("ALERT_NOT_FOUND"));
+        Integer patientId = ownershipResolver.alertOwner(alertId);
 
         // check if the user is a primary contact of the patient
-        boolean isPrimaryContact = relationshipRepository
-                .existsByPatient_UserIdAndCaregiver_UserIdAndIsPrimaryContactTrueAndIsActiveTrue(patientId, user.getUserId());
+        boolean isPrimaryContact = accessCache.isPrimaryContact(patientId, user.getUserId());
 
         if (!isPrimaryContact) {
             throw new AccessDeniedException("ONLY_PRIMARY_CONTACTS_CAN_ACKNOWLEDGE_ALERTS");
@@ -171,18 +145,20 @@ public class SecurityService {
     // MEDICATION SECURITY
     // ========================================================================
     public boolean isScheduleTimeOwner(Integer timeId, User user){
-        return timesRepository.findById(timeId)
-                .map(time -> {
-                    if(!time.getSchedule().getPatient().getUserId().equals(user.getUserId())){
-                        throw new AccessDeniedException("NOT_YOUR_MEDICATION");
-                    }
-                    return true;
-                }).orElseThrow(() -> new EntityNotFoundException("SCHEDULE_TIME_NOT_FOUND"));
+        if(!ownershipResolver.scheduleTimeOwner(timeId).equals(user.getUserId())){
+            throw new AccessDeniedException("NOT_YOUR_MEDICATION");
+        }
+        return true;
     }
 
     public boolean canCreateSchedule(MedicationScheduleRequestDto dto, User doctor){
         if (dto.getPatientUserId() == null) throw new IllegalArgumentException("PATIENT_ID_REQUIRED");
 
+        if (accessCache.isDoctorOf(dto.getPatientUserId(), doctor.getUserId())) {
+            return true;
+        }
+
+        // denied: the db tells which error applies
         return relationshipRepository.findByPatient_UserIdAndCaregiver_UserId(dto.getPatientUserId(), doctor.getUserId())
                 .map(rel -> {
                     if (!Boolean.TRUE.equals(rel.getIsActive())) {
@@ -197,14 +173,11 @@ public class SecurityService {
     }
 
     public boolean canModifySchedule(Integer scheduleId, User user) {
-        return medicationScheduleRepository.findById(scheduleId)
-                .map(schedule -> {
-                    if (schedule.getDoctor() == null || !schedule.getDoctor().getUserId().equals(user.getUserId())) {
-                        throw new AccessDeniedException("ONLY_THE_PRESCRIBING_DOCTOR_CAN_MODIFY_THIS_SCHEDULE");
-                    }
-                    return true;
-                })
-                .orElseThrow(() -> new EntityNotFoundException("SCHEDULE_NOT_FOUND"));
+        OwnershipEntry ownership = ownershipResolver.scheduleOwnership(scheduleId);
+        if (!user.getUserId().equals(ownership.creatorId())) {
+            throw new AccessDeniedException("ONLY_THE_PRESCRIBING_DOCTOR_CAN_MODIFY_THIS_SCHEDULE");
+        }
+        return true;
     }
 
     // ========================================================================
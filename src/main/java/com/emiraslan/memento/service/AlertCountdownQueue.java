@@ -0,0 +1,71 @@
+package com.emiraslan.memento.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+// Fall alert countdowns kept in a Redis sorted set: member = alertId, score = epoch millis the alert fires at.
+// The set survives restarts and is shared by every API replica, so any node can cancel or fire any countdown.
+// Alerts that were already claimed (status SENT) but failed before their notification went out are re-queued as "retry:<alertId>".
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AlertCountdownQueue {
+
+    private static final String COUNTDOWN_KEY = "alerts:countdown";
+    private static final String RETRY_PREFIX = "retry:";
+
+    // reads and removes the due members in one atomic step, so two nodes polling at the same time never claim the same alert.
+    // The script returns a multi-bulk of members, which the template deserializes into a list of strings
+    @SuppressWarnings("unchecked")
+    private static final RedisScript<List<String>> CLAIM_DUE_SCRIPT = new DefaultRedisScript<>(
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+            "if #due > 0 then redis.call('ZREM', KEYS[1], unpack(due)) end " +
+            "return due",
+            (Class<List<String>>) (Class<?>) List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    // retry = the alert is already SENT, only its notification is missing
+    public record DueAlert(Integer alertId, boolean retry) {
+    }
+
+    public void schedule(Integer alertId, Instant fireAt) {
+        redisTemplate.opsForZSet().add(COUNTDOWN_KEY, String.valueOf(alertId), fireAt.toEpochMilli());
+    }
+
+    // used by the countdown recovery, does not move a countdown that is already running
+    public boolean scheduleIfAbsent(Integer alertId, Instant fireAt) {
+        return Boolean.TRUE.equals(redisTemplate.opsForZSet().addIfAbsent(COUNTDOWN_KEY, String.valueOf(alertId), fireAt.toEpochMilli()));
+    }
+
+    // for a claimed alert whose notification failed, it must not be checked for PENDING again
+    public void scheduleRetry(Integer alertId, Instant fireAt) {
+        redisTemplate.opsForZSet().add(COUNTDOWN_KEY, RETRY_PREFIX + alertId, fireAt.toEpochMilli());
+    }
+
+    public void cancel(Integer alertId) {
+        redisTemplate.opsForZSet().remove(COUNTDOWN_KEY, String.valueOf(alertId));
+    }
+
+    // claims at most `limit` alerts whose countdown has ended
+    public List<DueAlert> claimDue(Instant now, int limit) {
+        List<String> due = redisTemplate.execute(CLAIM_DUE_SCRIPT, List.of(COUNTDOWN_KEY),
+                String.valueOf(now.toEpochMilli()), String.valueOf(limit));
+
+        if (due == null || due.isEmpty()) {
+            return List.of();
+        }
+        return due.stream()
+                .map(member -> member.startsWith(RETRY_PREFIX)
+                        ? new DueAlert(Integer.valueOf(member.substring(RETRY_PREFIX.length())), true)
+                        : new DueAlert(Integer.valueOf(member), false))
+                .toList();
+    }
+}
@@ -6,22 +6,27 @@ import com.emiraslan.memento.entity.Alert;
 import com.emiraslan.memento.entity.user.PatientRelationship;
 import com.emiraslan.memento.entity.user.User;
 import com.emiraslan.memento.enums.AlertStatus;
+import com.emiraslan.memento.enums.NotificationPriority;
 import com.emiraslan.memento.repository.AlertRepository;
 import com.emiraslan.memento.repository.user.PatientRelationshipRepository;
+import com.emiraslan.memento.service.ResourceVersionService.Resource;
 import com.emiraslan.memento.service.notification.NotificationService;
 import com.emiraslan.memento.util.MapperUtil;
+import com.emiraslan.memento.util.TransactionUtil;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.TaskScheduler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,8 +38,20 @@ public class AlertService {
     private final PatientRelationshipRepository relationshipRepository;
     private final NotificationService notificationService;
 
-    private final TaskScheduler taskScheduler;
-    private final Map<Integer, ScheduledFuture<?>> activeAlertTasks = new ConcurrentHashMap<>(); // keeping ids and tasks for cancel method
+    private final AlertCountdownQueue countdownQueue;
+    private final ResourceVersionService resourceVersionService;
+
+    private static final int COUNTDOWN_SECONDS = 30;
+    private static final int CLAIM_BATCH_SIZE = 100;
+
+    // PENDING alerts older than this are not brought back to life after a restart
+    @Value("${memento.alert.recovery-window-minutes}")
+    private long recoveryWindowMinutes;
+
+    // version of the patient's alert list, used as its ETag
+    public String getPatientAlertsVersion(Integer patientId) {
+        return resourceVersionService.version(Resource.ALERTS, patientId);
+    }
 
     // returns all alerts of a patient
     public List<AlertResponseDto> getPatientAlerts(Integer patientId) {
@@ -52,33 +69,59 @@ public class AlertService {
         Alert alert = MapperUtil.toAlertEntity(dto, patient);
         Alert savedAlert = alertRepository.save(alert);
 
-        log.info("Fall Detected (PENDING): PatientID={}, starting the 30 seconds countdown...", patient.getUserId());
-
-        // set a future task in 30 seconds
-        ScheduledFuture<?> futureTask = taskScheduler.schedule(
-                () -> processAlertAfterDelay(savedAlert.getAlertId()),
-                Instant.now().plusSeconds(30)
-        );
+        log.info("Fall Detected (PENDING): PatientID={}, starting the {} seconds countdown...", patient.getUserId(), COUNTDOWN_SECONDS);
 
-        // add it to the current tasks map
-        activeAlertTasks.put(savedAlert.getAlertId(), futureTask);
+        // the countdown starts once the alert row is committed, so the poller never claims an alert it can not see yet
+        Instant fireAt = Instant.now().plusSeconds(COUNTDOWN_SECONDS);
+        TransactionUtil.runAfterCommit(() -> countdownQueue.schedule(savedAlert.getAlertId(), fireAt));
+        resourceVersionService.bump(Resource.ALERTS, patient.getUserId());
 
         return MapperUtil.toAlertResponseDto(savedAlert);
     }
 
-    // if 30 seconds pass without a cancel on the alert
-    private void processAlertAfterDelay(Integer alertId){
-        activeAlertTasks.remove(alertId); // remove the alert from the map
+    // called every second by the scheduler, on every node. Returns the number of alerts that were sent
+    public int processDueAlerts() {
+        List<AlertCountdownQueue.DueAlert> dueAlerts = countdownQueue.claimDue(Instant.now(), CLAIM_BATCH_SIZE);
+
+        int sentCount = 0;
+        for (AlertCountdownQueue.DueAlert due : dueAlerts) {
+            Integer alertId = due.alertId();
+            boolean claimed = due.retry();
+            try {
+                // if the countdown ends without a cancel on the alert. Conditional update instead of read-then-save,
+                // so a cancel that commits at the same moment can not be overwritten
+                if (!claimed) {
+                    if (alertRepository.updateStatusIfPending(alertId, AlertStatus.SENT) == 0) {
+                        continue; // cancelled (or already sent) in the meantime
+                    }
+                    claimed = true;
+                }
+                sendEmergencyNotifications(alertId);
+                sentCount++;
+            } catch (Exception e) {
+                // put it back so another poll retries it instead of losing an emergency. Once SENT is committed
+                // the PENDING check would match nothing, so the retry goes straight to the notification
+                if (claimed) {
+                    countdownQueue.scheduleRetry(alertId, Instant.now().plusSeconds(1));
+                } else {
+                    countdownQueue.schedule(alertId, Instant.now().plusSeconds(1));
+                }
+                log.error("Failed to process due AlertId: {}, rescheduled. ERROR: {}", alertId, e.getMessage());
+            }
+        }
+        return sentCount;
+    }
+
+    // the alert is SENT already, notifies its primary contacts
+    private void sendEmergencyNotifications(Integer alertId) {
+        Alert alert = alertRepository.findByIdWithPatient(alertId)
+                .orElseThrow(() -> new EntityNotFoundException("ALERT_NOT_FOUND: " + alertId));
 
-        alertRepository.findByIdWithPatient(alertId).ifPresent(alert -> {
-            if (alert.getStatus() == AlertStatus.PENDING){ // checking if the alert is still PENDING to avoid Race Condition with cancelAlert method
-                alert.setStatus(AlertStatus.SENT);
-                alertRepository.save(alert); // save it again as SENT
+        log.info("{} second passed since AlertId: {} was issued. Sending emergency notifications.", COUNTDOWN_SECONDS, alertId);
+        notifyPrimaryContacts(alert); // send notifications to all primary contacts
 
-                log.info("30 second passed since AlertId: {} was issued. Sending emergency notifications.", alertId);
-                notifyPrimaryContacts(alert); // send notifications to all primary contacts
-            }
-        });
+        // status is SENT now. Only after the push is queued, nothing may hold back an emergency
+        resourceVersionService.bump(Resource.ALERTS, alert.getPatient().getUserId());
     }
 
     // if the patient responds within 30 seconds, alert is CANCELLED
@@ -87,20 +130,43 @@ public class AlertService {
         Alert alert = alertRepository.findById(alertId)
                 .orElseThrow(() -> new EntityNotFoundException("ALERT_NOT_FOUND: " + alertId));
 
-        if (alert.getStatus() != AlertStatus.PENDING) { // also checking if the alert is still PENDING to avoid Race Condition with processAlertAfterDelay method
+        // conditional update also covers the Race Condition with the countdown poller on any node
+        if (alertRepository.updateStatusIfPending(alertId, AlertStatus.CANCELLED) == 0) {
             throw new IllegalStateException("Only PENDING alerts can be cancelled.");
         }
 
         alert.setStatus(AlertStatus.CANCELLED);
-        Alert savedAlert = alertRepository.save(alert);
         log.info("Alert Cancelled by Patient: AlertID={}", alertId);
 
-        ScheduledFuture<?> futureTask = activeAlertTasks.remove(alertId); // remove the task from the map because it was cancelled
-        if (futureTask != null){
-            futureTask.cancel(false); // cancel the future task in TaskScheduler, "false" lets the thread complete the task if it has started running the moment cancel command was issued
-        }
+        // the poller would skip it anyway, removing it just keeps the countdown set small
+        TransactionUtil.runAfterCommit(() -> countdownQueue.cancel(alertId));
+        resourceVersionService.bump(Resource.ALERTS, alert.getPatient().getUserId());
 
-        return MapperUtil.toAlertResponseDto(savedAlert);
+        return MapperUtil.toAlertResponseDto(alert);
+    }
+
+    // restarts the countdowns of PENDING alerts, in case Redis lost them or they were created before this node started
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingAlerts() {
+        log.info("Alert countdown recovery: {} countdowns restored.", restoreMissingCountdowns());
+    }
+
+    // gives PENDING alerts without a countdown one, returns how many were missing. Besides startup the scheduler runs it
+    // every minute: if the ZADD after createFallAlert's commit failed, the emergency would otherwise wait for a restart
+    public int restoreMissingCountdowns() {
+        LocalDateTime since = LocalDateTime.now().minusMinutes(recoveryWindowMinutes);
+        List<Alert> pendingAlerts = alertRepository.findByStatusAndAlertTimestampGreaterThanEqual(AlertStatus.PENDING, since);
+
+        int restored = 0;
+        for (Alert alert : pendingAlerts) {
+            // alerts whose countdown already ended while no node was polling fire on the next poll.
+            // An alert claimed a moment ago is PENDING until its poll commits SENT, its re-added countdown then matches nothing
+            Instant fireAt = alert.getAlertTimestamp().atZone(ZoneId.systemDefault()).toInstant().plusSeconds(COUNTDOWN_SECONDS);
+            if (countdownQueue.scheduleIfAbsent(alert.getAlertId(), fireAt)) {
+                restored++;
+            }
+        }
+        return restored;
     }
 
     // a relative acknowledges the alert via push notification action
@@ -118,6 +184,7 @@ public class AlertService {
         alert.setAcknowledgedBy(caregiver);
 
         Alert savedAlert = alertRepository.save(alert);
+        resourceVersionService.bump(Resource.ALERTS, savedAlert.getPatient().getUserId());
         log.info("Alert Acknowledged by Caregiver: {} (ID: {})", caregiver.getEmail(), caregiver.getUserId());
 
         // Notify OTHER relatives that someone has acknowledged the alert
@@ -141,14 +208,12 @@ public class AlertService {
         String notificationTitle = "ACİL DURUM: Düşme Tespit Edildi!";
         String notificationBody = patientName + " düştü! Konumu görmek ve müdahale etmek için tıklayın.";
 
-        int notifiedCount = 0;
-        // for every primary contact
-        for (PatientRelationship rel : contacts) {
-            User caregiver = rel.getCaregiver();
-            notificationService.sendNotificationToUser(caregiver.getUserId(), notificationTitle, notificationBody);
-            notifiedCount++;
-        }
-            log.info("Fall Notification sent to {} primary contacts.", notifiedCount);
+        // every primary contact in a single fan-out
+        List<Integer> caregiverIds = contacts.stream()
+                .map(rel -> rel.getCaregiver().getUserId())
+                .toList();
+        notificationService.sendNotificationToUsers(caregiverIds, notificationTitle, notificationBody, NotificationPriority.HIGH);
+        log.info("Fall Notification sent to {} primary contacts.", caregiverIds.size());
     }
 
     // notifying OTHER relatives when someone takes responsibility
@@ -160,6 +225,7 @@ public class AlertService {
         String title = "Durum Güncellemesi: Müdahale Ediliyor";
         String body = acknowledgerName + " olayla ilgileniyor.";
 
+        List<Integer> relativeIds = new ArrayList<>();
         for (PatientRelationship rel : contacts) {
             User relative = rel.getCaregiver();
 
@@ -168,8 +234,13 @@ public class AlertService {
                 continue;
             }
 
-            notificationService.sendNotificationToUser(relative.getUserId(), title, body);
-            log.info("Acknowledgment info sent to other relative: {}", relative.getEmail());
+            relativeIds.add(relative.getUserId());
+        }
+        if (relativeIds.isEmpty()) {
+            return; // the acknowledger is the only primary contact
         }
+
+        notificationService.sendNotificationToUsers(relativeIds, title, body, NotificationPriority.HIGH);
+        log.info("Acknowledgment info sent to {} other relatives.", relativeIds.size());
     }
 }
\ No newline at end of file
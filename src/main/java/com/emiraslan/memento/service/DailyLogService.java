@@ -5,6 +5,8 @@ import com.emiraslan.memento.dto.response.DailyLogResponseDto;
 import com.emiraslan.memento.entity.DailyLog;
 import com.emiraslan.memento.entity.user.User;
 import com.emiraslan.memento.repository.DailyLogRepository;
+import com.emiraslan.memento.security.OwnershipResolver;
+import com.emiraslan.memento.service.ResourceVersionService.Resource;
 import com.emiraslan.memento.util.MapperUtil;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +23,13 @@ import java.util.Optional;
 public class DailyLogService {
 
     private final DailyLogRepository dailyLogRepository;
+    private final ResourceVersionService resourceVersionService;
+    private final OwnershipResolver ownershipResolver;
+
+    // version of the patient's recent logs, used as their ETag. The "last N days" window moves at midnight, so the date is part of it
+    public String getRecentLogsVersion(Integer patientId) {
+        return resourceVersionService.version(Resource.DAILY_LOGS, patientId, LocalDate.now());
+    }
 
     // brings last x days' reports. For example, if given 7, it will return this week's reports. 0 returns today
     public List<DailyLogResponseDto> getRecentLogs(Integer patientId, Integer daysBack) {
@@ -64,10 +73,14 @@ public class DailyLogService {
             dailyLogRepository.save(log);
         }
 
+        resourceVersionService.bump(Resource.DAILY_LOGS, patient.getUserId());
         return MapperUtil.toDailyLogResponseDto(dailyLogRepository.save(log));
     }
 
     public void deleteLog(Integer logId) {
+        // the guard resolved it in this request already, no query
+        Integer patientId = ownershipResolver.dailyLogOwner(logId);
         dailyLogRepository.deleteById(logId);
+        resourceVersionService.bump(Resource.DAILY_LOGS, patientId);
     }
 }
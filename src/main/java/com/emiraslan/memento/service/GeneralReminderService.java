@@ -1,5 +1,7 @@
 package com.emiraslan.memento.service;
 
+import com.emiraslan.memento.dto.projection.OwnershipEntry;
+import com.emiraslan.memento.dto.projection.ReminderFireEntry;
 import com.emiraslan.memento.dto.request.GeneralReminderRequestDto;
 import com.emiraslan.memento.dto.response.GeneralReminderResponseDto;
 import com.emiraslan.memento.entity.GeneralReminder;
@@ -8,17 +10,38 @@ import com.emiraslan.memento.enums.RecurrenceRule;
 import com.emiraslan.memento.enums.UserRole;
 import com.emiraslan.memento.repository.GeneralReminderRepository;
 import com.emiraslan.memento.repository.user.UserRepository;
+import com.emiraslan.memento.security.OwnershipResolver;
+import com.emiraslan.memento.service.ResourceVersionService.Resource;
+import com.emiraslan.memento.service.cluster.ClusterCoordinator;
 import com.emiraslan.memento.service.notification.NotificationService;
+import com.emiraslan.memento.util.HashedTimingWheel;
 import com.emiraslan.memento.util.MapperUtil;
+import com.emiraslan.memento.util.TransactionUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,9 +49,33 @@ import java.util.stream.Collectors;
 @Slf4j
 public class GeneralReminderService {
 
+    private static final String WHEEL_CHANNEL = "cluster:reminder-wheel";
+    // fired reminders are advanced in the db within seconds, one still overdue after this was never fired
+    private static final long CATCH_UP_GRACE_MINUTES = 2;
+
     private final GeneralReminderRepository reminderRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
+    private final ClusterCoordinator clusterCoordinator;
+    private final ResourceVersionService resourceVersionService;
+    private final OwnershipResolver ownershipResolver;
+
+    // reminders due within the look-ahead window, fired within a second of their time
+    private HashedTimingWheel<Integer, ReminderFireEntry> reminderWheel;
+    private volatile LocalDateTime windowEnd = LocalDateTime.now();
+
+    // fired reminders waiting for their db advancement, and reminderId -> fired reminderTime to avoid double fires until then
+    private final Queue<ReminderFireEntry> firedReminders = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, LocalDateTime> lastFired = new ConcurrentHashMap<>();
+    private final AtomicInteger firedCounter = new AtomicInteger();
+
+    @Value("${memento.reminder.look-ahead-hours}")
+    private long lookAheadHours;
+
+    // version of the patient's reminder list, used as its ETag
+    public String getRemindersVersion(Integer patientId) {
+        return resourceVersionService.version(Resource.REMINDERS, patientId);
+    }
 
     // brings all active reminders
     public List<GeneralReminderResponseDto> getAllRemindersByPatient(Integer patientId) {
@@ -54,7 +101,10 @@ public class GeneralReminderService {
         }
 
         GeneralReminder reminder = MapperUtil.toGeneralReminderEntity(dto, patient, creator);
-        return MapperUtil.toGeneralReminderResponseDto(reminderRepository.save(reminder));
+        GeneralReminder savedReminder = reminderRepository.save(reminder);
+        scheduleAfterCommit(savedReminder);
+
+        return MapperUtil.toGeneralReminderResponseDto(savedReminder);
     }
 
     @Transactional
@@ -69,51 +119,215 @@ public class GeneralReminderService {
         existingReminder.setIsRecurring(dto.getIsRecurring());
         existingReminder.setRecurrenceRule(dto.getRecurrenceRule());
 
-        return MapperUtil.toGeneralReminderResponseDto(reminderRepository.save(existingReminder));
+        GeneralReminder savedReminder = reminderRepository.save(existingReminder);
+        scheduleAfterCommit(savedReminder);
+
+        return MapperUtil.toGeneralReminderResponseDto(savedReminder);
     }
 
     public void deleteReminder(Integer reminderId) {
-        if (!reminderRepository.existsById(reminderId)) {
-            throw new EntityNotFoundException("GENERAL_REMINDER_NOT_FOUND: " + reminderId);
-        }
+        // the guard resolved it in this request already, no query
+        OwnershipEntry ownership = ownershipResolver.reminderOwnership(reminderId);
         reminderRepository.deleteById(reminderId);
+        resourceVersionService.bump(Resource.REMINDERS, ownership.ownerId());
+        reminderWheel.cancel(reminderId);
+        clusterCoordinator.broadcast(WHEEL_CHANNEL, "C:" + reminderId);
     }
 
-    // we find general reminders with <= currentDateTime, in case the server went offline during a reminder's time.
-    // because we set the next reminder time or complete the reminder after notification, we don't send multiple notifications
-    // for a single reminder
-    @Transactional
-    public int processGeneralReminders(LocalDateTime now) {
-        List<GeneralReminder> dueReminders = reminderRepository.findDueRemindersWithPatient(now);
+    // every node holds the whole look-ahead window, only the owner of a patient fires the patient's reminders.
+    // The other nodes drop them when they expire, if the owner went down they are caught up by catchUpOverdueReminders
+    @PostConstruct
+    void startReminderWheel() {
+        // 1 second ticks, one slot per second of an hour. Timers further away wait for their turn in the same slot
+        reminderWheel = new HashedTimingWheel<>("reminder-wheel", 1000, 3600, this::fireReminders);
+        reminderWheel.start();
+
+        // "S:<reminderId>,<reminderId>..." reload reminders into the wheel, "C:<reminderId>" cancel a deleted one
+        clusterCoordinator.subscribe(WHEEL_CHANNEL, payload -> {
+            if (payload.startsWith("S:")) {
+                reloadIntoWheel(Arrays.stream(payload.substring(2).split(",")).map(Integer::valueOf).toList());
+            } else if (payload.startsWith("C:")) {
+                reminderWheel.cancel(Integer.valueOf(payload.substring(2)));
+            }
+        });
+    }
+
+    @PreDestroy
+    void stopReminderWheel() {
+        reminderWheel.stop();
+    }
+
+    // loads every reminder due until the end of the look-ahead window into the wheel, overdue ones included
+    // in case the server went offline during a reminder's time. Runs on startup and every hour
+    @EventListener(ApplicationReadyEvent.class)
+    public void refillReminderWheel() {
+        LocalDateTime newWindowEnd = LocalDateTime.now().plusHours(lookAheadHours);
+        List<ReminderFireEntry> entries = reminderRepository.findFireEntriesUntil(newWindowEnd);
+
+        windowEnd = newWindowEnd;
+        int scheduled = 0;
+        for (ReminderFireEntry entry : entries) {
+            // fired but not yet advanced in the db, scheduling it again would send the notification twice
+            LocalDateTime firedAt = lastFired.get(entry.reminderId());
+            if (firedAt != null && !entry.reminderTime().isAfter(firedAt)) {
+                continue;
+            }
+            reminderWheel.schedule(entry.reminderId(), toEpochMillis(entry.reminderTime()), entry);
+            scheduled++;
+        }
+
+        // guards older than a window can not match a loaded reminder anymore
+        LocalDateTime guardCutoff = LocalDateTime.now().minusHours(lookAheadHours);
+        lastFired.values().removeIf(firedAt -> firedAt.isBefore(guardCutoff));
+
+        log.info("Reminder wheel refilled with {} reminders due until {}.", scheduled, newWindowEnd);
+    }
+
+    // fires this node's reminders that are overdue in the db, i.e. nobody fired them: their owner crashed before their time and
+    // the other nodes dropped them from their wheels. Called on every notification tick, so they go out a few minutes late
+    public int catchUpOverdueReminders() {
+        List<ReminderFireEntry> overdue = reminderRepository.findFireEntriesUntil(LocalDateTime.now().minusMinutes(CATCH_UP_GRACE_MINUTES))
+                .stream()
+                .filter(entry -> clusterCoordinator.owns(entry.patientId()))
+                .filter(entry -> {
+                    // fired by this node but not yet advanced (e.g. the db write is failing), don't send it again
+                    LocalDateTime firedAt = lastFired.get(entry.reminderId());
+                    return firedAt == null || entry.reminderTime().isAfter(firedAt);
+                })
+                .toList();
+        if (overdue.isEmpty()) {
+            return 0;
+        }
+
+        overdue.forEach(entry -> reminderWheel.cancel(entry.reminderId())); // the wheel must not fire them a second time
+        fireReminders(overdue);
+        log.warn("{} overdue reminders were not fired by their owner, caught up.", overdue.size());
+        return overdue.size();
+    }
+
+    // number of reminders fired since the last call, for the cron log
+    public int drainFiredCount() {
+        return firedCounter.getAndSet(0);
+    }
 
-        List<GeneralReminder> toUpdate = new ArrayList<>();
-        List<GeneralReminder> toDelete = new ArrayList<>();
+    // runs on the wheel thread: only queues the notifications, the db work is done by persistFiredReminders
+    private void fireReminders(List<ReminderFireEntry> dueEntries) {
+        // reminders with the same title and time (e.g. a shared routine) go out as one fan-out
+        Map<ReminderPush, List<Integer>> patientIdsByPush = new LinkedHashMap<>();
+        int fired = 0;
+        for (ReminderFireEntry entry : dueEntries) {
+            if (!clusterCoordinator.owns(entry.patientId())) {
+                continue; // another node fires and advances this patient's reminders
+            }
+            fired++;
+            lastFired.put(entry.reminderId(), entry.reminderTime());
+            patientIdsByPush.computeIfAbsent(new ReminderPush(entry.title(), entry.reminderTime()), p -> new ArrayList<>()).add(entry.patientId());
+            firedReminders.add(entry);
+        }
+        patientIdsByPush.forEach((push, patientIds) ->
+                notificationService.sendScheduledNotificationToUsers(patientIds, "Memento", push.title(), push.dueAt()));
+        firedCounter.addAndGet(fired);
+    }
 
-        int notificationCounter = 0;
-        for (GeneralReminder reminder : dueReminders) {
-            notificationService.sendNotificationToUser(reminder.getPatient().getUserId(), "Memento", reminder.getTitle());
-            notificationCounter++;
+    // because we set the next reminder time or complete the reminder after notification, we don't send multiple notifications
+    // for a single reminder. Called every few seconds by the scheduler, writes all reminders fired since the last run
+    // with one UPDATE per RecurrenceRule and one DELETE, in one transaction
+    @Transactional
+    public int persistFiredReminders() {
+        Map<RecurrenceRule, List<ReminderFireEntry>> recurring = new EnumMap<>(RecurrenceRule.class);
+        List<ReminderFireEntry> oneShot = new ArrayList<>();
+        Set<Integer> patientIds = new HashSet<>();
 
-            // for isRecurring = true reminders
-            if (Boolean.TRUE.equals(reminder.getIsRecurring()) && reminder.getRecurrenceRule() != null) {
-                reminder.setReminderTime(calculateNextReminderTime(reminder.getReminderTime(), reminder.getRecurrenceRule()));
-                toUpdate.add(reminder);
+        ReminderFireEntry entry;
+        while ((entry = firedReminders.poll()) != null) {
+            patientIds.add(entry.patientId());
+            if (entry.recurring()) { // for isRecurring = true reminders
+                recurring.computeIfAbsent(entry.recurrenceRule(), rule -> new ArrayList<>()).add(entry);
             } else { // delete the reminder if it's not recurring
-                toDelete.add(reminder);
+                oneShot.add(entry);
             }
         }
-        // batch write
-        if (!toDelete.isEmpty()) reminderRepository.deleteAllInBatch(toDelete);
-        if (!toUpdate.isEmpty()) reminderRepository.saveAll(toUpdate);
-        return notificationCounter;
+        if (recurring.isEmpty() && oneShot.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+
+        // the statements only touch a reminder whose time is still the time it fired at
+        int advanced = 0;
+        for (Map.Entry<RecurrenceRule, List<ReminderFireEntry>> group : recurring.entrySet()) {
+            Integer[] ids = reminderIds(group.getValue());
+            LocalDateTime[] firedTimes = firedTimes(group.getValue());
+            advanced += switch (group.getKey()) {
+                case DAILY -> reminderRepository.advanceDailyReminders(ids, firedTimes, now);
+                case WEEKLY -> reminderRepository.advanceWeeklyReminders(ids, firedTimes, now);
+                case MONTHLY -> reminderRepository.advanceMonthlyReminders(ids, firedTimes, now);
+                case YEARLY -> reminderRepository.advanceYearlyReminders(ids, firedTimes, now);
+            };
+        }
+        int deleted = oneShot.isEmpty() ? 0 : reminderRepository.deleteFiredOneShotReminders(reminderIds(oneShot), firedTimes(oneShot));
+        resourceVersionService.bump(Resource.REMINDERS, patientIds); // next times or deleted reminders show up in the lists
+
+        // next occurrences inside the current window go straight back into the wheel, on every node
+        List<Integer> allRecurringIds = recurring.values().stream().flatMap(List::stream).map(ReminderFireEntry::reminderId).distinct().toList();
+        List<ReminderFireEntry> toReschedule = allRecurringIds.isEmpty() ? List.of() : reminderRepository.findFireEntriesByIds(allRecurringIds).stream()
+                .filter(reminder -> reminder.reminderTime().isAfter(now))
+                .toList();
+        TransactionUtil.runAfterCommit(() -> {
+            toReschedule.forEach(this::scheduleIfInWindow);
+            broadcastSchedule(toReschedule.stream().map(ReminderFireEntry::reminderId).toList());
+        });
+
+        log.info("Fired reminders persisted: {} advanced, {} deleted in {} ms.", advanced, deleted, System.currentTimeMillis() - start);
+        return advanced + deleted;
+    }
+
+    private void scheduleAfterCommit(GeneralReminder reminder) {
+        ReminderFireEntry entry = new ReminderFireEntry(reminder.getReminderId(), reminder.getPatient().getUserId(), reminder.getTitle(),
+                reminder.getReminderTime(), reminder.getIsRecurring(), reminder.getRecurrenceRule());
+        resourceVersionService.bump(Resource.REMINDERS, entry.patientId());
+        TransactionUtil.runAfterCommit(() -> {
+            lastFired.remove(entry.reminderId()); // an edited reminder may fire again
+            scheduleIfInWindow(entry);
+            broadcastSchedule(List.of(entry.reminderId()));
+        });
+    }
+
+    private void broadcastSchedule(List<Integer> reminderIds) {
+        if (!reminderIds.isEmpty()) {
+            clusterCoordinator.broadcast(WHEEL_CHANNEL, "S:" + reminderIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+    }
+
+    // applies another node's reminder changes to this node's wheel
+    private void reloadIntoWheel(List<Integer> reminderIds) {
+        for (ReminderFireEntry entry : reminderRepository.findFireEntriesByIds(reminderIds)) {
+            lastFired.remove(entry.reminderId());
+            scheduleIfInWindow(entry);
+        }
+    }
+
+    private void scheduleIfInWindow(ReminderFireEntry entry) {
+        if (entry.reminderTime().isAfter(windowEnd)) {
+            reminderWheel.cancel(entry.reminderId()); // moved out of the window, the hourly refill will load it
+            return;
+        }
+        reminderWheel.schedule(entry.reminderId(), toEpochMillis(entry.reminderTime()), entry);
+    }
+
+    private static Integer[] reminderIds(List<ReminderFireEntry> entries) {
+        return entries.stream().map(ReminderFireEntry::reminderId).toArray(Integer[]::new);
+    }
+
+    private static LocalDateTime[] firedTimes(List<ReminderFireEntry> entries) {
+        return entries.stream().map(ReminderFireEntry::reminderTime).toArray(LocalDateTime[]::new);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 
-    private LocalDateTime calculateNextReminderTime(LocalDateTime currentReminderTime, RecurrenceRule recurrenceRule){
-        return switch(recurrenceRule){
-            case DAILY -> currentReminderTime.plusDays(1);
-            case WEEKLY -> currentReminderTime.plusWeeks(1);
-            case MONTHLY -> currentReminderTime.plusMonths(1);
-            case YEARLY -> currentReminderTime.plusYears(1);
-        };
+    private record ReminderPush(String title, LocalDateTime dueAt) {
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,25 @@
 package com.emiraslan.memento.service;
 
 import com.emiraslan.memento.service.auth.AuthService;
+import com.emiraslan.memento.service.auth.TokenBlacklist;
+import com.emiraslan.memento.service.cluster.ClusterCoordinator;
 import com.emiraslan.memento.service.medication.MedicationLogService;
 import com.emiraslan.memento.service.medication.MedicationScheduleService;
+import com.emiraslan.memento.service.notification.InvalidTokenReaper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.scheduling.annotation.Scheduled;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -21,38 +31,187 @@ public class MasterSchedulerService {
     private final MedicationLogService medicationLogService;
     private final UserDeviceService userDeviceService;
     private final AuthService authService;
+    private final AlertService alertService;
+    private final TokenBlacklist tokenBlacklist;
+    private final InvalidTokenReaper invalidTokenReaper;
+    private final MeterRegistry meterRegistry;
+    private final ClusterCoordinator clusterCoordinator;
 
-    // cron that works each minute to find due general reminders and medications and sends out notifications
+    // minute tick metrics: duration against the 60s budget, per phase time, how late the tick started, overruns
+    private Timer tickDuration;
+    private Timer reminderPhase;
+    private Timer medicationPhase;
+    private Timer tickLag;
+    private Counter tickOverruns;
+    private Counter missedTicks;
+    private LocalDateTime lastTickMinute;
+
+    @PostConstruct
+    void initMetrics() {
+        tickDuration = Timer.builder("memento.scheduler.tick.duration")
+                .description("Duration of the per-minute notification tick")
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(Duration.ofSeconds(60))
+                .register(meterRegistry);
+        reminderPhase = Timer.builder("memento.scheduler.tick.phase")
+                .description("Duration of one phase of the notification tick")
+                .tag("phase", "reminders")
+                .register(meterRegistry);
+        medicationPhase = Timer.builder("memento.scheduler.tick.phase")
+                .description("Duration of one phase of the notification tick")
+                .tag("phase", "medications")
+                .register(meterRegistry);
+        tickLag = Timer.builder("memento.scheduler.tick.lag")
+                .description("Time between the tick's scheduled minute and its actual start")
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        tickOverruns = Counter.builder("memento.scheduler.tick.overrun")
+                .description("Ticks that ran into the next minute")
+                .register(meterRegistry);
+        missedTicks = Counter.builder("memento.scheduler.tick.missed")
+                .description("Minutes without a tick because the previous one was still running")
+                .register(meterRegistry);
+    }
+
+    // keeps this node in the cluster, the next minute's epoch includes it
+    @Scheduled(fixedRate = 5000, initialDelay = 5000)
+    public void clusterHeartbeat() {
+        clusterCoordinator.heartbeat();
+    }
+
+    // polls the shared fall alert countdowns every second, safe to run on every node
+    @Scheduled(fixedDelay = 1000)
+    public void alertCountdownPoller() {
+        int sentAlerts = timeJob("alert-countdown", alertService::processDueAlerts);
+
+        if (sentAlerts > 0) {
+            log.info("CRON [Alerts]: {} fall alerts were sent.", sentAlerts);
+        }
+    }
+
+    // restores the countdowns of PENDING alerts that never reached Redis, safe to run on every node
+    @Scheduled(fixedRate = 60 * 1000, initialDelay = 60 * 1000)
+    public void alertCountdownSweep() {
+        int restoredCountdowns = timeJob("alert-countdown-sweep", alertService::restoreMissingCountdowns);
+
+        if (restoredCountdowns > 0) {
+            log.warn("CRON [Alerts]: {} PENDING alerts had no countdown, restored.", restoredCountdowns);
+        }
+    }
+
+    // cron that works each minute to find due medications and sends out notifications.
+    // General reminders are fired by the reminder timing wheel, here only overdue ones nobody fired are caught up and
+    // their count since the last minute is logged
+    // Runs on every node, each node only sends the medications of its own share of the patients
     @Scheduled(cron = "0 * * * * *")
     public void masterNotificationCron() {
-        LocalDateTime currentDateTime = LocalDateTime.now(); // for general reminders
-        LocalTime currentTime = currentDateTime.toLocalTime().truncatedTo(ChronoUnit.MINUTES); // for medications
+        long startedAtNanos = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime tickMinute = startedAt.truncatedTo(ChronoUnit.MINUTES);
+        LocalTime currentTime = tickMinute.toLocalTime(); // for medications
+
+        tickLag.record(Duration.between(tickMinute, startedAt));
+        // Spring skips a cron run while the previous one is still running, those minutes' medications were never sent
+        if (lastTickMinute != null && tickMinute.isAfter(lastTickMinute.plusMinutes(1))) {
+            long missed = ChronoUnit.MINUTES.between(lastTickMinute, tickMinute) - 1;
+            missedTicks.increment(missed);
+            log.error("CRON [Notifications]: {} minute ticks were missed before {}.", missed, currentTime);
+        }
+        lastTickMinute = tickMinute;
 
-        int generalNotifCount = reminderService.processGeneralReminders(currentDateTime);
-        int medicationNotifCount = medicationScheduleService.processMedications(currentTime);
+        int generalNotifCount = reminderPhase.record(() -> {
+            reminderService.catchUpOverdueReminders(); // counted with the wheel's fires
+            return reminderService.drainFiredCount();
+        });
+        int medicationNotifCount = medicationPhase.record(() -> medicationScheduleService.processMedications(currentTime));
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAtNanos);
+        tickDuration.record(elapsed);
+        if (startedAt.plus(elapsed).isAfter(tickMinute.plusMinutes(1))) {
+            tickOverruns.increment();
+            log.error("CRON [Notifications]: tick of {} overran into the next minute, took {} ms.", currentTime, elapsed.toMillis());
+        }
+
+        log.info("CRON [Notifications]: GeneralReminders: {}, Medications: {} notifications queued in {} ms.",
+                generalNotifCount, medicationNotifCount, elapsed.toMillis());
+    }
 
-        log.info("CRON [Notifications]: GeneralReminders: {}, Medications: {} notifications sent.", generalNotifCount, medicationNotifCount);
+    // writes the next times of fired recurring reminders and deletes fired one-shot reminders
+    @Scheduled(fixedDelay = 5000)
+    public void firedReminderPersister() {
+        timeJob("fired-reminder-persister", reminderService::persistFiredReminders);
     }
 
-    // checking for missed medications every hour and logs them as skipped if not taken within 2 hours
+    // deletes the fcm tokens FCM rejected since the last run, in batches
+    @Scheduled(fixedDelay = 5000)
+    public void invalidTokenReaperCron() {
+        int reapedTokens = 0;
+        while (invalidTokenReaper.hasPending()) {
+            reapedTokens += timeJob("invalid-token-reaper", invalidTokenReaper::reap);
+        }
+
+        if (reapedTokens > 0) {
+            log.info("CRON [Invalid Tokens]: {} invalid NotificationTokens were deleted.", reapedTokens);
+        }
+    }
+
+    // reloads the reminder wheel's look-ahead window every hour
+    @Scheduled(cron = "0 0 * * * *")
+    public void reminderWheelRefillCron() {
+        timeJob("reminder-wheel-refill", reminderService::refillReminderWheel);
+    }
+
+    // access JWTs live 15 minutes, so the blacklist filter drops its older generation every 15 minutes
+    @Scheduled(fixedRate = 15 * 60 * 1000, initialDelay = 15 * 60 * 1000)
+    public void blacklistFilterRotation() {
+        tokenBlacklist.rotate();
+    }
+
+    // checking for missed medications every hour and logs them as skipped if not taken within 2 hours.
+    // Runs on a single node per hour
     @Scheduled(cron = "0 0 * * * *")
     public void masterSkippedMedicationCron() {
-        int missedMedicationCounter = medicationLogService.markMissedMedicationsAsSkipped();
+        String runId = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).toString();
+        if (!clusterCoordinator.tryAcquireRun("skipped-medications", runId, Duration.ofMinutes(50))) {
+            return;
+        }
+        int missedMedicationCounter = timeJob("skipped-medications", medicationLogService::markMissedMedicationsAsSkipped);
 
         log.info("CRON [Skipped Medications]: {} medications were logged as SKIPPED.", missedMedicationCounter);
     }
 
-    // works at 00:05 each night
+    // works at 00:05 each night, on a single node
     @Scheduled(cron = "0 5 0 * * *")
     public void endOfDayCron() {
+        if (!clusterCoordinator.tryAcquireRun("end-of-day", LocalDate.now().toString(), Duration.ofHours(23))) {
+            return;
+        }
         // Finds expired medication schedules and deactivates them
-        int deactivatedSchedules = medicationScheduleService.autoDeactivateExpiredSchedules();
+        int deactivatedSchedules = timeJob("deactivate-schedules", medicationScheduleService::autoDeactivateExpiredSchedules);
         // Deletes expired refresh tokens
-        int expiredRefreshTokens = userDeviceService.deleteExpiredRefreshTokens();
+        int expiredRefreshTokens = timeJob("expired-refresh-tokens", userDeviceService::deleteExpiredRefreshTokens);
         // Deletes all unverified user accounts
-        int removedIdleAccounts = authService.deleteUnverifiedAccounts();
+        int removedIdleAccounts = timeJob("unverified-accounts", authService::deleteUnverifiedAccounts);
 
         log.info("CRON [End of day]: Deactivated {} schedules, deleted {} expired Refresh Tokens, and removed {} unverified accounts.",
                 deactivatedSchedules, expiredRefreshTokens, removedIdleAccounts);
     }
-}
\ No newline at end of file
+
+    // db heavy jobs are timed one by one, so a slow query shows up under its own job tag
+    private <T> T timeJob(String job, Supplier<T> work) {
+        return jobTimer(job).record(work);
+    }
+
+    private void timeJob(String job, Runnable work) {
+        jobTimer(job).record(work);
+    }
+
+    private Timer jobTimer(String job) {
+        return Timer.builder("memento.scheduler.job.duration")
+                .description("Duration of a scheduled job")
+                .tag("job", job)
+                .register(meterRegistry); // returns the already registered timer after the first call
+    }
+}
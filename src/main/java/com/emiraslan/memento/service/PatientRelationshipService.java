@@ -11,6 +11,7 @@ import com.emiraslan.memento.enums.UserRole;
 import com.emiraslan.memento.repository.user.PatientProfileRepository;
 import com.emiraslan.memento.repository.user.PatientRelationshipRepository;
 import com.emiraslan.memento.repository.user.UserRepository;
+import com.emiraslan.memento.security.RelationshipAccessCache;
 import com.emiraslan.memento.service.notification.OtpService;
 import com.emiraslan.memento.util.MapperUtil;
 import jakarta.persistence.EntityNotFoundException;
@@ -33,6 +34,7 @@ public class PatientRelationshipService {
     private final UserRepository userRepository;
     private final OtpService otpService;
     private final PatientProfileRepository patientProfileRepository;
+    private final RelationshipAccessCache accessCache;
 
     @Transactional
     public Slice<PatientCardDto> getDoctorPatients(User doctor, String searchTerm, Pageable pageable){
@@ -150,6 +152,7 @@ public class PatientRelationshipService {
                 .isActive(true)
                 .build();
         }
+        accessCache.invalidate(caregiver.getUserId());
         return MapperUtil.toRelationshipResponseDto(relationshipRepository.save(relationship));
     }
 
@@ -173,6 +176,7 @@ public class PatientRelationshipService {
         if (dto.getRelationshipType() != null) relationship.setRelationshipType(dto.getRelationshipType());
         if (dto.getIsPrimaryContact() != null) relationship.setIsPrimaryContact(dto.getIsPrimaryContact());
 
+        accessCache.invalidate(relationship.getCaregiver().getUserId());
         return MapperUtil.toRelationshipResponseDto(relationshipRepository.save(relationship));
     }
 
@@ -186,6 +190,7 @@ public class PatientRelationshipService {
         boolean currentStatus = Boolean.TRUE.equals(relationship.getIsPrimaryContact());
         relationship.setIsPrimaryContact(!currentStatus); // reversing primary contact status
 
+        accessCache.invalidate(relationship.getCaregiver().getUserId());
         return MapperUtil.toRelationshipResponseDto(relationshipRepository.save(relationship));
     }
 }
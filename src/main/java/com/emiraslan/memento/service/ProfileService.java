@@ -10,6 +10,7 @@ import com.emiraslan.memento.entity.user.User;
 import com.emiraslan.memento.repository.user.DoctorProfileRepository;
 import com.emiraslan.memento.repository.user.PatientProfileRepository;
 import com.emiraslan.memento.repository.user.UserRepository;
+import com.emiraslan.memento.service.auth.PrincipalCache;
 import com.emiraslan.memento.service.notification.OtpService;
 import com.emiraslan.memento.util.MapperUtil;
 import jakarta.persistence.EntityExistsException;
@@ -28,6 +29,7 @@ public class ProfileService {
     private final DoctorProfileRepository doctorProfileRepository;
     private final UserRepository userRepository;
     private final OtpService otpService;
+    private final PrincipalCache principalCache;
 
     // PATIENT PROFILE OPERATIONS
 
@@ -65,6 +67,7 @@ public class ProfileService {
         // email is not updated here
 
         userRepository.save(user);
+        principalCache.invalidate(patientId);
         PatientProfile updatedProfile = patientProfileRepository.save(profile);
 
         return MapperUtil.toPatientProfileResponseDto(updatedProfile);
@@ -103,6 +106,7 @@ public class ProfileService {
         // email is not updated here
 
         userRepository.save(user);
+        principalCache.invalidate(doctorId);
         DoctorProfile updatedProfile = doctorProfileRepository.save(profile);
 
         return MapperUtil.toDoctorProfileResponseDto(updatedProfile);
@@ -141,6 +145,7 @@ public class ProfileService {
         String oldEmail = user.getEmail();
         user.setEmail(newEmail);
         userRepository.save(user);
+        principalCache.invalidate(userId);
 
         log.info("User ID: {} successfully changed email from {} to {}", userId, oldEmail, newEmail);
     }
@@ -0,0 +1,100 @@
+package com.emiraslan.memento.service;
+
+import com.emiraslan.memento.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// Version of a patient's read endpoints, "resourceVersion:<resource>:<patientId>" -> random token. The polled GET endpoints use it
+// as their ETag and answer If-None-Match with 304 before any query or serialization runs. The services writing a resource
+// replace its token after commit. Tokens are random instead of a counter, so a version recreated after expiry or a Redis flush
+// can't match an ETag a client still holds for older data
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResourceVersionService {
+
+    private static final String KEY_PREFIX = "resourceVersion:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    // also bounds how long a change no write bumps (e.g. a renamed user shown in a response) can be answered with 304
+    @Value("${memento.resource-version.ttl-minutes}")
+    private long ttlMinutes;
+
+    public enum Resource {
+        ALERTS("alerts"),
+        DAILY_LOGS("dailyLogs"),
+        REMINDERS("reminders"),
+        LOCATIONS("locations"),
+        MEDICATION_SCHEDULES("medicationSchedules");
+
+        private final String key;
+
+        Resource(String key) {
+            this.key = key;
+        }
+    }
+
+    // current version, created if there is none
+    public String version(Resource resource, Integer patientId) {
+        String key = key(resource, patientId);
+        String version = redisTemplate.opsForValue().get(key);
+        if (version != null) {
+            return version;
+        }
+
+        // two readers may race to create it, the one that loses takes the winner's token
+        redisTemplate.opsForValue().setIfAbsent(key, newVersion(), Duration.ofMinutes(ttlMinutes));
+        version = redisTemplate.opsForValue().get(key);
+        return version != null ? version : newVersion(); // expired in between: a one-off version nothing will match
+    }
+
+    // for endpoints whose response also depends on the current date ("last N days"): the view changes at midnight without a write
+    public String version(Resource resource, Integer patientId, Object dateQualifier) {
+        return version(resource, patientId) + "-" + dateQualifier;
+    }
+
+    public void bump(Resource resource, Integer patientId) {
+        bump(resource, List.of(patientId));
+    }
+
+    // after commit, one pipelined round-trip. Readers keep getting the old version (and 304s) until the data is visible.
+    // A Redis error is only logged: the write is committed already and must not turn into a 500 the client would retry
+    public void bump(Resource resource, Collection<Integer> patientIds) {
+        if (patientIds.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = List.copyOf(patientIds);
+        long ttlSeconds = Duration.ofMinutes(ttlMinutes).toSeconds();
+        TransactionUtil.runAfterCommit(() -> {
+            try {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                    ids.forEach(id -> stringConnection.setEx(key(resource, id), ttlSeconds, newVersion()));
+                    return null;
+                });
+            } catch (Exception e) {
+                // stale until the ttl runs out at worst, clients see the change once the old version expires
+                log.warn("{} version of PatientIds={} could not be bumped. ERROR: {}", resource.key, ids, e.getMessage());
+            }
+        });
+    }
+
+    private String key(Resource resource, Integer patientId) {
+        return KEY_PREFIX + resource.key + ":" + patientId;
+    }
+
+    private String newVersion() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -5,6 +5,8 @@ import com.emiraslan.memento.dto.response.SavedLocationResponseDto;
 import com.emiraslan.memento.entity.SavedLocation;
 import com.emiraslan.memento.entity.user.User;
 import com.emiraslan.memento.repository.SavedLocationRepository;
+import com.emiraslan.memento.security.OwnershipResolver;
+import com.emiraslan.memento.service.ResourceVersionService.Resource;
 import com.emiraslan.memento.util.MapperUtil;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
@@ -19,6 +21,13 @@ import java.util.stream.Collectors;
 public class SavedLocationService {
 
     private final SavedLocationRepository locationRepository;
+    private final ResourceVersionService resourceVersionService;
+    private final OwnershipResolver ownershipResolver;
+
+    // version of the patient's location list, used as its ETag
+    public String getLocationsVersion(Integer patientId) {
+        return resourceVersionService.version(Resource.LOCATIONS, patientId);
+    }
 
     public List<SavedLocationResponseDto> getLocationsByPatient(Integer patientId) {
         return locationRepository.findByPatient_UserId(patientId)
@@ -32,6 +41,7 @@ public class SavedLocationService {
         SavedLocation location = MapperUtil.toSavedLocationEntity(dto, patient); // object with nulls
 
         SavedLocation savedLocation = locationRepository.save(location); // obj after it receives an id from the db
+        resourceVersionService.bump(Resource.LOCATIONS, patient.getUserId());
 
         return MapperUtil.toSavedLocationResponseDto(savedLocation);
     }
@@ -48,14 +58,15 @@ public class SavedLocationService {
         existingLocation.setAddressDetails(dto.getAddressDetails());
 
         SavedLocation updatedLocation = locationRepository.save(existingLocation);
+        resourceVersionService.bump(Resource.LOCATIONS, updatedLocation.getPatient().getUserId());
 
         return MapperUtil.toSavedLocationResponseDto(updatedLocation);
     }
 
     public void deleteLocation(Integer locationId) {
-        if (!locationRepository.existsById(locationId)) {
-            throw new EntityNotFoundException("LOCATION_NOT_FOUND: " + locationId);
-        }
+        // the guard resolved it in this request already, no query
+        Integer patientId = ownershipResolver.locationOwner(locationId);
         locationRepository.deleteById(locationId);
+        resourceVersionService.bump(Resource.LOCATIONS, patientId);
     }
 }
\ No newline at end of file
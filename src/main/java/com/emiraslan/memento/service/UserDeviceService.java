@@ -5,19 +5,17 @@ import com.emiraslan.memento.entity.UserDevice;
 import com.emiraslan.memento.repository.device.RefreshTokenRepository;
 import com.emiraslan.memento.repository.device.UserDeviceRepository;
 import com.emiraslan.memento.service.auth.JwtService;
+import com.emiraslan.memento.service.auth.TokenBlacklist;
+import com.emiraslan.memento.service.notification.NotificationTokenCache;
 import com.emiraslan.memento.util.MapperUtil;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-
-import static com.emiraslan.memento.service.auth.AuthService.BLACKLIST_PREFIX;
 
 @Slf4j
 @Service
@@ -25,9 +23,9 @@ import static com.emiraslan.memento.service.auth.AuthService.BLACKLIST_PREFIX;
 public class UserDeviceService {
 
     private final UserDeviceRepository userDeviceRepository;
-    private final StringRedisTemplate redisTemplate;
-    private final JwtService jwtService;
+    private final TokenBlacklist tokenBlacklist;
     private final RefreshTokenRepository refreshTokenRepository;
+    private final NotificationTokenCache notificationTokenCache;
 
     public List<UserDeviceResponseDto> getUserDevices(Integer userId) {
         return userDeviceRepository.findAllByUser_UserId(userId).stream()
@@ -42,7 +40,7 @@ public class UserDeviceService {
     }
 
     @Transactional
-    public void logoutDevice(Integer deviceId, String jwt){
+    public void logoutDevice(Integer deviceId, String jwt, JwtService.VerifiedJwt verifiedJwt){
 
         // find the device
         UserDevice device = userDeviceRepository.findById(deviceId)
@@ -50,17 +48,18 @@ public class UserDeviceService {
 
         // delete it. Refresh and Notification tokens of the device are also deleted through Cascade
         userDeviceRepository.delete(device);
+        notificationTokenCache.evict(device.getUser().getUserId());
         log.info("Device session and all associated tokens deleted for Device ID: {}", deviceId);
 
         // Blacklist the current JWT
-        if (jwt != null) {
-            long expirationTimeMillis = jwtService.getExpirationTime(jwt);
+        // the expiration comes from the claims the auth filter already verified, the token is not parsed again
+        if (jwt != null && verifiedJwt != null) {
+            long expirationTimeMillis = verifiedJwt.expirationMillis();
             long currentTimeMillis = System.currentTimeMillis();
             long remainingTimeMillis = expirationTimeMillis - currentTimeMillis;
 
             if (remainingTimeMillis > 0) {
-                String redisKey = BLACKLIST_PREFIX + jwt;
-                redisTemplate.opsForValue().set(redisKey, "val", remainingTimeMillis, TimeUnit.MILLISECONDS);
+                tokenBlacklist.blacklist(jwt, remainingTimeMillis);
                 log.info("JWT added to Redis blacklist. Remaining time (ms): {}", remainingTimeMillis);
             }
         }
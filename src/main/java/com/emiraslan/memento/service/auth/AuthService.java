@@ -7,6 +7,7 @@ import com.emiraslan.memento.repository.device.RefreshTokenRepository;
 import com.emiraslan.memento.repository.device.UserDeviceRepository;
 import com.emiraslan.memento.repository.user.UserRepository;
 import com.emiraslan.memento.service.notification.EmailService;
+import com.emiraslan.memento.util.HashUtil;
 import com.emiraslan.memento.util.MapperUtil;
 import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityNotFoundException;
@@ -20,8 +21,6 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -40,6 +39,7 @@ public class AuthService {
     private final EmailService emailService;
     private final UserDeviceRepository userDeviceRepository;
     private final RefreshTokenRepository refreshTokenRepository;
+    private final PrincipalCache principalCache;
 
     public static final String BLACKLIST_PREFIX = "jwt:blacklist:";
 
@@ -101,6 +101,7 @@ public class AuthService {
         // set user as verified
         user.setIsEmailVerified(true);
         userRepository.save(user);
+        principalCache.invalidate(user.getUserId());
 
         // delete the token from redis after it's used
         redisTemplate.delete(redisKey);
@@ -109,7 +110,11 @@ public class AuthService {
     @Transactional
     public int deleteUnverifiedAccounts() {
         LocalDateTime cutoff = LocalDateTime.now().minusHours(23);
-        return userRepository.deleteUnverifiedUsersOlderThan(cutoff);
+        int deletedCount = userRepository.deleteUnverifiedUsersOlderThan(cutoff);
+        if (deletedCount > 0) {
+            principalCache.invalidateAll(); // deleted ids are unknown here
+        }
+        return deletedCount;
     }
 
     @Transactional
@@ -196,11 +201,11 @@ public class AuthService {
 
         // Check if the Refresh JWT has expired or has false signature. (There already is a cleaner CRON that works every day at 00:05 for expired tokens)
         // This check accounts for the small timeframe between 00:00-00:05 that Refresh JWTs might be cancelled after 14 days of not using the app
-        jwtService.validateRefreshJwt(oldRefreshJwt);
+        JwtService.VerifiedJwt verifiedRefreshJwt = jwtService.validateRefreshJwt(oldRefreshJwt);
 
-        // Extract JTI and deviceId from the Refresh JWT
-        String incomingJti = jwtService.extractJti(oldRefreshJwt);
-        Integer deviceId = jwtService.extractDeviceId(oldRefreshJwt);
+        // JTI and deviceId of the Refresh JWT, read from the same parse
+        String incomingJti = verifiedRefreshJwt.jti();
+        Integer deviceId = verifiedRefreshJwt.deviceId();
 
         // hash the incoming JTI from Refresh JWT, to compare the token in DBs
         String incomingHashedJti = hashJti(incomingJti);
@@ -266,20 +271,6 @@ public class AuthService {
     }
 
     private String hashJti(String jti) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256"); // get sha-256 instance
-            byte[] hash = digest.digest(jti.getBytes(StandardCharsets.UTF_8)); // turn the JTI into a byte array
-
-            StringBuilder hexString = new StringBuilder();
-
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b); // turns the negative valued bytes into 0-255 integers and convert them to hexadecimals
-                if (hex.length() == 1) hexString.append('0'); // add 0 if the hex is 1 letter.  a -> 0a
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("Error hashing Refresh JTI", e);
-        }
+        return HashUtil.sha256Hex(jti);
     }
 }
\ No newline at end of file
@@ -3,10 +3,12 @@ package com.emiraslan.memento.service.auth;
 import com.emiraslan.memento.entity.user.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -14,7 +16,6 @@ import org.springframework.stereotype.Service;
 import java.security.Key;
 import java.util.Date;
 import java.util.Map;
-import java.util.function.Function;
 
 @Service
 public class JwtService {
@@ -22,6 +23,23 @@ public class JwtService {
     @Value("${jwt.secret}")
     private String secretKey;
 
+    // the key and the parser are immutable and thread-safe, built once instead of on every call
+    private Key signInKey;
+    private JwtParser jwtParser;
+
+    // verified, immutable view of a token's claims. Produced by a single parse
+    public record VerifiedJwt(Integer userId, String jti, Integer deviceId, long expirationMillis) {
+    }
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        signInKey = Keys.hmacShaKeyFor(keyBytes);
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+    }
+
     // Access Token methods
 
     // Generating a 15-minute JWT for users to use the api with
@@ -35,7 +53,7 @@ public class JwtService {
                 .setSubject(String.valueOf(user.getUserId())) // we put the user's id as the subject of JWT
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 15)) // 15 min short-lived JWT access token
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -49,17 +67,14 @@ public class JwtService {
                 .claim("deviceId", deviceId) // we include the device's id in the payload, along with JTI
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + 1000L * 60 * 60 * 24 * 14)) // 14 Days
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public void validateRefreshJwt(String token) {
+    public VerifiedJwt validateRefreshJwt(String token) {
         try {
             // parsing automatically checks for expiration and signature
-            Jwts.parserBuilder()
-                    .setSigningKey(getSignInKey())
-                    .build()
-                    .parseClaimsJws(token);
+            return verify(token);
         } catch (ExpiredJwtException e) {
             throw new IllegalStateException("REFRESH_TOKEN_EXPIRED");
         } catch (Exception e) {
@@ -67,52 +82,22 @@ public class JwtService {
         }
     }
 
-    public String extractJti(String token) {
-        return extractClaim(token, Claims::getId);
-    }
-
-    public Integer extractDeviceId(String token) {
-        return extractClaim(token, claims -> claims.get("deviceId", Integer.class));
-    }
-
     // Mutual/helper methods
 
-    public String extractUserId(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String extractedId = extractUserId(token);
-        User user = (User) userDetails;
-        return (extractedId.equals(String.valueOf(user.getUserId()))) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    public long getExpirationTime(String token) {
-        return extractExpiration(token).getTime();
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    // parses the token once: checks the signature and expiration, throws ExpiredJwtException or JwtException on failure
+    public VerifiedJwt verify(String token) {
+        Claims claims = extractAllClaims(token);
+        return new VerifiedJwt(
+                Integer.valueOf(claims.getSubject()),
+                claims.getId(),
+                claims.get("deviceId", Integer.class),
+                claims.getExpiration().getTime()
+        );
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
-
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
 }
\ No newline at end of file
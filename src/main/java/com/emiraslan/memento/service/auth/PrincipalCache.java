@@ -0,0 +1,97 @@
+package com.emiraslan.memento.service.auth;
+
+import com.emiraslan.memento.entity.user.User;
+import com.emiraslan.memento.repository.user.UserRepository;
+import com.emiraslan.memento.util.TransactionUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Local cache of authenticated users for JwtAuthenticationFilter, so a request does not need a db round-trip to rebuild its principal.
+// Changes to a user are broadcast over Redis pub/sub and every node drops its copy. The TTL bounds staleness if a message is lost.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PrincipalCache {
+
+    private static final String INVALIDATION_CHANNEL = "principal:invalidate";
+    private static final String INVALIDATE_ALL = "*";
+
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${memento.auth.principal-cache.max-size}")
+    private long maxSize;
+
+    @Value("${memento.auth.principal-cache.ttl-seconds}")
+    private long ttlSeconds;
+
+    private Cache<Integer, User> principals;
+
+    @PostConstruct
+    void init() {
+        principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+
+        listenerContainer.addMessageListener((message, pattern) -> evictLocal(new String(message.getBody())),
+                new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    // returns a copy of the user, or null if the user does not exist. Callers may modify it freely
+    public User get(Integer userId) {
+        User cached = principals.get(userId, id -> userRepository.findById(id).orElse(null)); // null results are not cached
+        return cached == null ? null : copyOf(cached);
+    }
+
+    // drops the user on every node once the caller's transaction commits
+    public void invalidate(Integer userId) {
+        TransactionUtil.runAfterCommit(() -> publish(String.valueOf(userId)));
+    }
+
+    // for bulk changes where the affected ids are unknown (e.g. deleting unverified accounts)
+    public void invalidateAll() {
+        TransactionUtil.runAfterCommit(() -> publish(INVALIDATE_ALL));
+    }
+
+    private void publish(String payload) {
+        // the local copy is dropped right away, the message also reaches this node but that is harmless
+        evictLocal(payload);
+        redisTemplate.convertAndSend(INVALIDATION_CHANNEL, payload);
+    }
+
+    private void evictLocal(String payload) {
+        if (INVALIDATE_ALL.equals(payload)) {
+            principals.invalidateAll();
+        } else {
+            principals.invalidate(Integer.valueOf(payload));
+        }
+    }
+
+    // cached instances are shared between requests, so they are never handed out directly
+    private static User copyOf(User user) {
+        return User.builder()
+                .userId(user.getUserId())
+                .email(user.getEmail())
+                .passwordHash(user.getPasswordHash())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .phoneNumber(user.getPhoneNumber())
+                .role(user.getRole())
+                .gender(user.getGender())
+                .isEmailVerified(user.getIsEmailVerified())
+                .createdAt(user.getCreatedAt())
+                .build();
+    }
+}
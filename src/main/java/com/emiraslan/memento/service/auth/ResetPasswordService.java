@@ -15,6 +15,7 @@ public class ResetPasswordService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final OtpService otpService;
+    private final PrincipalCache principalCache;
 
 
     @Transactional
@@ -32,5 +33,6 @@ public class ResetPasswordService {
 
         user.setPasswordHash(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        principalCache.invalidate(user.getUserId());
     }
 }
@@ -0,0 +1,113 @@
+package com.emiraslan.memento.service.auth;
+
+import com.emiraslan.memento.util.BloomFilter;
+import com.emiraslan.memento.util.HashUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.emiraslan.memento.service.auth.AuthService.BLACKLIST_PREFIX;
+
+// Blacklist of logged out access JWTs. Redis stays the source of truth ("jwt:blacklist:<sha256 of the jwt>" with the jwt's remaining lifetime as TTL),
+// a local Bloom filter in front of it answers "definitely not blacklisted" for almost every request without a network round-trip.
+// Every node learns about new entries through Redis pub/sub. The filter has two generations that rotate every access token lifetime,
+// so entries of long expired tokens fall out and the false positive rate stays flat.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenBlacklist {
+
+    private static final String BLACKLIST_CHANNEL = "jwt:blacklist";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${memento.auth.blacklist-filter.expected-insertions}")
+    private int expectedInsertions;
+
+    @Value("${memento.auth.blacklist-filter.false-positive-rate}")
+    private double falsePositiveRate;
+
+    // a token is checked against both generations, new hashes go into the current one
+    private volatile BloomFilter currentGeneration;
+    private volatile BloomFilter previousGeneration;
+
+    // the filter is only trusted once it has been seeded from Redis, until then every check goes to Redis
+    private volatile boolean seeded = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        currentGeneration = new BloomFilter(expectedInsertions, falsePositiveRate);
+        previousGeneration = new BloomFilter(expectedInsertions, falsePositiveRate);
+
+        // subscribe before scanning, so an entry written during the scan is not missed
+        listenerContainer.addMessageListener((message, pattern) -> currentGeneration.put(new String(message.getBody())),
+                new ChannelTopic(BLACKLIST_CHANNEL));
+
+        int seededCount = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(BLACKLIST_PREFIX + "*").count(1000).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                String suffix = key.substring(BLACKLIST_PREFIX.length());
+                currentGeneration.put(suffix.length() == 64 ? suffix : migrateLegacyKey(key, suffix));
+                seededCount++;
+            }
+        }
+
+        seeded = true;
+        log.info("JWT blacklist filter seeded with {} entries from Redis.", seededCount);
+    }
+
+    public void blacklist(String jwt, long remainingTimeMillis) {
+        String tokenHash = HashUtil.sha256Hex(jwt);
+        redisTemplate.opsForValue().set(BLACKLIST_PREFIX + tokenHash, "val", remainingTimeMillis, TimeUnit.MILLISECONDS);
+
+        // local filter first, this node must never let the token through again
+        if (currentGeneration != null) {
+            currentGeneration.put(tokenHash);
+        }
+        redisTemplate.convertAndSend(BLACKLIST_CHANNEL, tokenHash);
+    }
+
+    public boolean isBlacklisted(String jwt) {
+        String tokenHash = HashUtil.sha256Hex(jwt);
+
+        if (seeded && !currentGeneration.mightContain(tokenHash) && !previousGeneration.mightContain(tokenHash)) {
+            return false; // definitely not blacklisted, no Redis call
+        }
+        // possible hit (or not seeded yet), Redis decides
+        return Boolean.TRUE.equals(redisTemplate.hasKey(BLACKLIST_PREFIX + tokenHash));
+    }
+
+    // called every access token lifetime. Tokens blacklisted before the previous generation have expired by now
+    public void rotate() {
+        if (!seeded) {
+            return;
+        }
+        previousGeneration = currentGeneration;
+        currentGeneration = new BloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    // keys written before the blacklist was hashed hold the full jwt, moves them to the hashed key with the same TTL
+    private String migrateLegacyKey(String legacyKey, String jwt) {
+        String tokenHash = HashUtil.sha256Hex(jwt);
+        Long remainingTimeMillis = redisTemplate.getExpire(legacyKey, TimeUnit.MILLISECONDS);
+
+        if (remainingTimeMillis != null && remainingTimeMillis > 0) {
+            redisTemplate.opsForValue().set(BLACKLIST_PREFIX + tokenHash, "val", remainingTimeMillis, TimeUnit.MILLISECONDS);
+        }
+        redisTemplate.delete(legacyKey);
+        return tokenHash;
+    }
+}
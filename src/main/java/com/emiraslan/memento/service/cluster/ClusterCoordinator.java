@@ -0,0 +1,160 @@
+package com.emiraslan.memento.service.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Coordinates the scheduled work of several backend instances through Redis only.
+// - Membership: every node heartbeats into the "cluster:nodes" ZSET (score = last heartbeat). Nodes that miss the TTL are dropped
+// - Epochs: ownership is frozen per minute. The first node asking for a minute writes the live nodes sorted by id to "cluster:epoch:<minute>",
+//   every node reads that same list, so within a minute all nodes agree on the split (patientId % nodeCount) and a join or leave
+//   can't make a patient owned by two nodes or by none. A node that joins mid-minute owns nothing until the next minute.
+//   Remaining window: a node that crashes stays in the epochs written until its heartbeat expires (heartbeat-ttl-seconds), and its
+//   shard is not served in those minutes. Medications catch that up: every tick also takes the previous window's unsent shards
+//   (see MedicationScheduleService.processMedications). Reminders of that shard are not advanced in the db, the new owner's tick fires
+//   them once they are a few minutes overdue (see GeneralReminderService.catchUpOverdueReminders)
+// - Run locks: jobs that must run once per period (hourly, nightly) take a SET NX lock named after their run
+// - Broadcast: changes to in-memory schedules are sent to every other node over pub/sub
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterCoordinator {
+
+    private static final String NODES_KEY = "cluster:nodes";
+    private static final String RUN_LOCK_PREFIX = "cluster:run:";
+    private static final String EPOCH_PREFIX = "cluster:epoch:";
+    private static final String EPOCH_SEPARATOR = ",";
+    private static final Duration EPOCH_TTL = Duration.ofDays(1);
+    private static final String ORIGIN_SEPARATOR = "|";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${memento.cluster.heartbeat-ttl-seconds}")
+    private long heartbeatTtlSeconds;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // the epoch of the current minute, the wheel thread asks for it on every fired reminder
+    private volatile CachedEpoch currentEpoch;
+
+    // the split of one minute: count nodes, this node is shard index (-1 if it was not live when the epoch was written)
+    public record Epoch(int count, int index) {
+
+        public int shardOf(Integer patientId) {
+            return Math.floorMod(patientId, count);
+        }
+
+        public boolean owns(Integer patientId) {
+            return index >= 0 && shardOf(patientId) == index;
+        }
+    }
+
+    private record CachedEpoch(LocalDateTime minute, Epoch epoch) {
+    }
+
+    // the first heartbeat runs before the in-memory schedules are loaded, so the node is in the epoch of the first tick
+    @PostConstruct
+    void join() {
+        heartbeat();
+        log.info("Cluster node {} joined.", nodeId);
+    }
+
+    @PreDestroy
+    void leave() {
+        // the next minute's epoch leaves this node out instead of waiting for the TTL
+        redisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+    }
+
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().add(NODES_KEY, nodeId, now);
+        redisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, Double.NEGATIVE_INFINITY, now - heartbeatTtlSeconds * 1000);
+    }
+
+    // true if this node sends the patient's reminders in the current minute
+    public boolean owns(Integer patientId) {
+        return epochAt(LocalDateTime.now()).owns(patientId);
+    }
+
+    // the split every node uses for the given minute. Written once by the first node asking, read by all others
+    public Epoch epochAt(LocalDateTime time) {
+        LocalDateTime minute = time.truncatedTo(ChronoUnit.MINUTES);
+        CachedEpoch cached = currentEpoch;
+        if (cached != null && cached.minute().equals(minute)) {
+            return cached.epoch();
+        }
+
+        String key = EPOCH_PREFIX + minute;
+        String members = redisTemplate.opsForValue().get(key);
+        if (members == null) {
+            List<String> liveNodes = liveNodes();
+            if (liveNodes.isEmpty()) {
+                return new Epoch(0, -1); // nothing to write down, a later catch-up writes this minute's epoch from the nodes alive then
+            }
+            redisTemplate.opsForValue().setIfAbsent(key, String.join(EPOCH_SEPARATOR, liveNodes), EPOCH_TTL);
+            members = redisTemplate.opsForValue().get(key);
+            if (members == null) {
+                members = String.join(EPOCH_SEPARATOR, liveNodes); // expired in between, can't happen within the TTL
+            }
+        }
+
+        List<String> nodes = List.of(members.split(EPOCH_SEPARATOR));
+        Epoch epoch = new Epoch(nodes.size(), nodes.indexOf(nodeId));
+
+        // only the newest minute is cached, catch-ups of older minutes must not push it out
+        if (cached == null || minute.isAfter(cached.minute())) {
+            if (cached == null || !epoch.equals(cached.epoch())) {
+                log.info("Cluster epoch {}: node {} is shard {} of {}.", minute, nodeId, epoch.index(), epoch.count());
+            }
+            currentEpoch = new CachedEpoch(minute, epoch);
+        }
+        return epoch;
+    }
+
+    // nodes whose last heartbeat is within the TTL, sorted by id
+    private List<String> liveNodes() {
+        long now = System.currentTimeMillis();
+        Set<String> liveNodes = redisTemplate.opsForZSet().rangeByScore(NODES_KEY, now - heartbeatTtlSeconds * 1000, Double.POSITIVE_INFINITY);
+        List<String> sortedNodes = liveNodes == null ? new ArrayList<>() : new ArrayList<>(liveNodes);
+        sortedNodes.sort(null);
+        return sortedNodes;
+    }
+
+    // true for exactly one node per runId. The lock is never released, it expires after ttl so the run can't repeat within it
+    public boolean tryAcquireRun(String job, String runId, Duration ttl) {
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(RUN_LOCK_PREFIX + job + ":" + runId, nodeId, ttl);
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    // sends the payload to every other node, the caller applies the change locally itself
+    public void broadcast(String channel, String payload) {
+        redisTemplate.convertAndSend(channel, nodeId + ORIGIN_SEPARATOR + payload);
+    }
+
+    public void subscribe(String channel, Consumer<String> handler) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody());
+            int separator = body.indexOf(ORIGIN_SEPARATOR);
+            if (separator < 0 || body.substring(0, separator).equals(nodeId)) {
+                return; // own message, already applied
+            }
+            handler.accept(body.substring(separator + 1));
+        }, new ChannelTopic(channel));
+    }
+}
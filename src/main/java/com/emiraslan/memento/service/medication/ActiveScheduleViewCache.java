@@ -0,0 +1,74 @@
+package com.emiraslan.memento.service.medication;
+
+import com.emiraslan.memento.dto.response.MedicationScheduleResponseDto;
+import com.emiraslan.memento.service.ResourceVersionService;
+import com.emiraslan.memento.service.ResourceVersionService.Resource;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Read model of a patient's active schedules, polled by the app and every caregiver.
+// The version comes from ResourceVersionService and doubles as the ETag, so an unchanged view is answered from one GET.
+// "medicationSchedules:view:<patientId>:<version>" holds the serialized list built for that version.
+// Writes don't touch the view, they replace the version after commit; the old view is never read again and expires
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActiveScheduleViewCache {
+
+    private static final String VIEW_PREFIX = "medicationSchedules:view:";
+    private static final TypeReference<List<MedicationScheduleResponseDto>> VIEW_TYPE = new TypeReference<>() {};
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ResourceVersionService resourceVersionService;
+
+    @Value("${memento.medication.schedule-view.ttl-minutes}")
+    private long ttlMinutes;
+
+    // current version of the patient's view, created if there is none
+    public String version(Integer patientId) {
+        return resourceVersionService.version(Resource.MEDICATION_SCHEDULES, patientId);
+    }
+
+    // the caller reads the version before the loader queries the db, so a view is never stored under a version newer than its data
+    public List<MedicationScheduleResponseDto> view(Integer patientId, String version, Supplier<List<MedicationScheduleResponseDto>> loader) {
+        String key = VIEW_PREFIX + patientId + ":" + version;
+        String json = redisTemplate.opsForValue().get(key);
+        if (json != null) {
+            try {
+                return objectMapper.readValue(json, VIEW_TYPE);
+            } catch (JsonProcessingException e) {
+                log.warn("Unreadable schedule view {}, rebuilding it.", key);
+            }
+        }
+
+        List<MedicationScheduleResponseDto> schedules = loader.get();
+        try {
+            redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(schedules), Duration.ofMinutes(ttlMinutes));
+        } catch (JsonProcessingException e) {
+            log.warn("Schedule view of patient {} could not be serialized, serving it uncached.", patientId);
+        }
+        return schedules;
+    }
+
+    // new version after commit, readers of the old one get a 304 until then
+    public void bump(Integer patientId) {
+        resourceVersionService.bump(Resource.MEDICATION_SCHEDULES, patientId);
+    }
+
+    // one pipelined round-trip, for the nightly deactivation
+    public void bump(Collection<Integer> patientIds) {
+        resourceVersionService.bump(Resource.MEDICATION_SCHEDULES, patientIds);
+    }
+}
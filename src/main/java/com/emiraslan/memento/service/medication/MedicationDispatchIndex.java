@@ -0,0 +1,203 @@
+package com.emiraslan.memento.service.medication;
+
+import com.emiraslan.memento.dto.projection.MedicationDispatchEntry;
+import com.emiraslan.memento.repository.medication.MedicationScheduleTimeRepository;
+import com.emiraslan.memento.service.cluster.ClusterCoordinator;
+import com.emiraslan.memento.util.TransactionUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+// In-memory index of all active, timed medications keyed by minute of day (0..1439).
+// The notification cron reads a single bucket every minute instead of querying the db and lazy loading schedules and patients.
+// Every node holds the whole index (it only sends its own patients' share), schedule changes are broadcast to the other nodes.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MedicationDispatchIndex {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final MedicationDispatchEntry[] EMPTY_BUCKET = new MedicationDispatchEntry[0];
+    private static final String CHANGE_CHANNEL = "cluster:medication-index";
+    private static final int SCHEDULE_LOCK_STRIPES = 64;
+
+    private final MedicationScheduleTimeRepository timeRepository;
+    private final ClusterCoordinator clusterCoordinator;
+
+    // buckets are copy-on-write arrays: writers replace a bucket under the lock, the cron reads it without locking
+    private final AtomicReferenceArray<MedicationDispatchEntry[]> buckets = emptyBuckets();
+
+    // scheduleId -> minutes its times are indexed at, so a schedule can be removed without scanning all 1440 buckets
+    private final Map<Integer, int[]> scheduleMinutes = new HashMap<>();
+
+    private final Object writeLock = new Object();
+
+    // a reload reads the db and applies the result while holding its schedule's stripe, so two changes of one schedule
+    // (after-commit reload, pub/sub message, a removal) apply in the order they read. Taken before writeLock, never after
+    private final Object[] scheduleLocks = newScheduleLocks();
+
+    // schedules reloaded or removed while a rebuild is reading the db, null when no rebuild is running.
+    // the rebuild's snapshot may predate those changes, so they are reloaded again after the swap
+    private Set<Integer> changedDuringRebuild;
+
+    @PostConstruct
+    void subscribe() {
+        // "R:<scheduleId>" reload a schedule, "D:<scheduleId>,<scheduleId>..." drop schedules
+        clusterCoordinator.subscribe(CHANGE_CHANNEL, payload -> {
+            if (payload.startsWith("R:")) {
+                reloadSchedule(Integer.valueOf(payload.substring(2)));
+            } else if (payload.startsWith("D:")) {
+                removeLocal(Arrays.stream(payload.substring(2).split(",")).map(Integer::valueOf).toList());
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (writeLock) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        List<MedicationDispatchEntry> allEntries = timeRepository.findAllActiveDispatchEntries();
+
+        // group the rows into minute buckets before swapping them in
+        List<List<MedicationDispatchEntry>> grouped = new ArrayList<>(MINUTES_PER_DAY);
+        for (int i = 0; i < MINUTES_PER_DAY; i++) {
+            grouped.add(new ArrayList<>());
+        }
+        Map<Integer, List<Integer>> minutesBySchedule = new HashMap<>();
+        for (MedicationDispatchEntry entry : allEntries) {
+            grouped.get(entry.minuteOfDay()).add(entry);
+            minutesBySchedule.computeIfAbsent(entry.scheduleId(), id -> new ArrayList<>()).add(entry.minuteOfDay());
+        }
+
+        Set<Integer> changed;
+        synchronized (writeLock) {
+            for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+                List<MedicationDispatchEntry> bucket = grouped.get(minute);
+                buckets.set(minute, bucket.isEmpty() ? EMPTY_BUCKET : bucket.toArray(EMPTY_BUCKET));
+            }
+            scheduleMinutes.clear();
+            minutesBySchedule.forEach((scheduleId, minutes) ->
+                    scheduleMinutes.put(scheduleId, minutes.stream().mapToInt(Integer::intValue).distinct().toArray()));
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        }
+        // re-read the schedules that changed while the snapshot was loading, a removed schedule reloads as empty
+        changed.forEach(this::reloadSchedule);
+
+        log.info("Medication dispatch index built with {} schedule times in {} ms.", allEntries.size(), System.currentTimeMillis() - start);
+    }
+
+    // entries due at the given minute
+    public MedicationDispatchEntry[] entriesAt(LocalTime time) {
+        return buckets.get(time.getHour() * 60 + time.getMinute());
+    }
+
+    // reloads a schedule's times from the db on every node once the caller's transaction commits (create/update)
+    public void refreshSchedule(Integer scheduleId) {
+        TransactionUtil.runAfterCommit(() -> {
+            reloadSchedule(scheduleId);
+            clusterCoordinator.broadcast(CHANGE_CHANNEL, "R:" + scheduleId);
+        });
+    }
+
+    // drops the schedules from the index once the caller's transaction commits (manual or nightly deactivation)
+    public void removeSchedules(Collection<Integer> scheduleIds) {
+        if (scheduleIds.isEmpty()) {
+            return;
+        }
+        TransactionUtil.runAfterCommit(() -> {
+            removeLocal(scheduleIds);
+            clusterCoordinator.broadcast(CHANGE_CHANNEL, "D:" + scheduleIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        });
+    }
+
+    private void reloadSchedule(Integer scheduleId) {
+        synchronized (scheduleLock(scheduleId)) {
+            List<MedicationDispatchEntry> entries = timeRepository.findActiveDispatchEntriesBySchedule(scheduleId);
+            synchronized (writeLock) {
+                trackLocked(List.of(scheduleId));
+                removeLocked(scheduleId);
+                addLocked(scheduleId, entries);
+            }
+        }
+    }
+
+    // waits for a reload of the same schedule that is still reading, otherwise it would add the schedule back afterwards.
+    // Deactivation is final, any reload that starts later reads no active times for it
+    private void removeLocal(Collection<Integer> scheduleIds) {
+        for (Integer scheduleId : scheduleIds) {
+            synchronized (scheduleLock(scheduleId)) {
+                synchronized (writeLock) {
+                    trackLocked(List.of(scheduleId));
+                    removeLocked(scheduleId);
+                }
+            }
+        }
+    }
+
+    private Object scheduleLock(Integer scheduleId) {
+        return scheduleLocks[Math.floorMod(scheduleId, SCHEDULE_LOCK_STRIPES)];
+    }
+
+    private void trackLocked(Collection<Integer> scheduleIds) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.addAll(scheduleIds);
+        }
+    }
+
+    private void removeLocked(Integer scheduleId) {
+        int[] minutes = scheduleMinutes.remove(scheduleId);
+        if (minutes == null) {
+            return;
+        }
+        for (int minute : minutes) {
+            MedicationDispatchEntry[] remaining = Arrays.stream(buckets.get(minute))
+                    .filter(entry -> !entry.scheduleId().equals(scheduleId))
+                    .toArray(MedicationDispatchEntry[]::new);
+            buckets.set(minute, remaining.length == 0 ? EMPTY_BUCKET : remaining);
+        }
+    }
+
+    private static Object[] newScheduleLocks() {
+        Object[] locks = new Object[SCHEDULE_LOCK_STRIPES];
+        Arrays.setAll(locks, i -> new Object());
+        return locks;
+    }
+
+    private static AtomicReferenceArray<MedicationDispatchEntry[]> emptyBuckets() {
+        MedicationDispatchEntry[][] initial = new MedicationDispatchEntry[MINUTES_PER_DAY][];
+        Arrays.fill(initial, EMPTY_BUCKET);
+        return new AtomicReferenceArray<>(initial);
+    }
+
+    private void addLocked(Integer scheduleId, List<MedicationDispatchEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        for (MedicationDispatchEntry entry : entries) {
+            int minute = entry.minuteOfDay();
+            MedicationDispatchEntry[] current = buckets.get(minute);
+            MedicationDispatchEntry[] extended = Arrays.copyOf(current, current.length + 1);
+            extended[current.length] = entry;
+            buckets.set(minute, extended);
+        }
+        scheduleMinutes.put(scheduleId, entries.stream().mapToInt(MedicationDispatchEntry::minuteOfDay).distinct().toArray());
+    }
+}
@@ -23,8 +23,6 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -114,27 +112,12 @@ public class MedicationLogService {
         LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
         LocalTime thresholdTime = now.toLocalTime().minusHours(2); // 2 hours before now()
 
-        // bring all unlogged and 2 hours past medications of today, together with schedules and patient data
-        List<MedicationScheduleTime> unloggedOverdueTimes = timeRepository
-                .findOverdueTimesWithoutLogsToday(thresholdTime, startOfDay, now);
+        // all unlogged and 2 hours past medications of today are saved as SKIPPED with one INSERT ... SELECT
+        long start = System.nanoTime();
+        int skippedCount = logRepository.insertSkippedLogsForOverdueTimes(thresholdTime, startOfDay, now);
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
 
-        if (unloggedOverdueTimes.isEmpty()) {
-            return 0;
-        }
-
-        // all unlogged medication will be saved as SKIPPED
-        List<MedicationLog> logsToSave = new ArrayList<>();
-
-        for (MedicationScheduleTime time : unloggedOverdueTimes) {
-            MedicationLog skippedLog = MedicationLog.builder()
-                    .scheduleTime(time)
-                    .patient(time.getSchedule().getPatient())
-                    .takenAt(now)
-                    .status(MedicationStatus.SKIPPED)
-                    .build();
-            logsToSave.add(skippedLog);
-        }
-        logRepository.saveAll(logsToSave); // batch save the list
-        return logsToSave.size();
+        log.info("Skipped medication logs inserted: {} rows in {} ms ({} rows/s).", skippedCount, elapsedMillis, skippedCount * 1000L / elapsedMillis);
+        return skippedCount;
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.emiraslan.memento.service.medication;
 
+import com.emiraslan.memento.dto.projection.MedicationDispatchEntry;
 import com.emiraslan.memento.dto.request.MedicationScheduleRequestDto;
 import com.emiraslan.memento.dto.response.MedicationScheduleResponseDto;
 import com.emiraslan.memento.entity.medication.MedicationSchedule;
@@ -9,23 +10,31 @@ import com.emiraslan.memento.repository.medication.MedicationLogRepository;
 import com.emiraslan.memento.repository.medication.MedicationScheduleRepository;
 import com.emiraslan.memento.repository.medication.MedicationScheduleTimeRepository;
 import com.emiraslan.memento.repository.user.UserRepository;
+import com.emiraslan.memento.service.cluster.ClusterCoordinator;
 import com.emiraslan.memento.service.notification.NotificationService;
 import com.emiraslan.memento.util.MapperUtil;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -39,6 +48,25 @@ public class MedicationScheduleService {
     private final UserRepository userRepository;
     private final MedicationLogRepository logRepository;
     private final NotificationService notificationService;
+    private final MedicationDispatchIndex dispatchIndex;
+    private final ClusterCoordinator clusterCoordinator;
+    private final ActiveScheduleViewCache activeScheduleViewCache;
+
+    // due medications of a patient within one window go out as a single digest push. Windows start at midnight,
+    // 1 groups only the times of the same minute
+    @Value("${memento.notification.medication.grouping-window-minutes}")
+    private int groupingWindowMinutes;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // how far back a node catches up windows it has not dispatched, the medication run locks outlive it
+    private static final int CATCH_UP_HORIZON_MINUTES = 60;
+
+    // the window this node dispatched last: its epoch, the shards it holds in it and the (schedule, minute) pairs it sent.
+    // Only the notification cron touches them, Spring never runs it twice at the same time
+    private LocalDateTime currentWindowStartAt;
+    private ClusterCoordinator.Epoch currentWindowEpoch;
+    private Set<Integer> currentWindowShards = Set.of();
+    private Set<Long> currentWindowSent = new HashSet<>();
 
     private Function<MedicationSchedule, MedicationScheduleResponseDto> buildScheduleMapper(List<MedicationSchedule> schedules){
 
@@ -60,8 +88,17 @@ public class MedicationScheduleService {
         };
     }
 
-    // brings active medication schedules and times
-    public List<MedicationScheduleResponseDto> getActiveSchedulesByPatient(Integer patientId) {
+    // version of the patient's active schedule view, used as its ETag
+    public String getActiveSchedulesVersion(Integer patientId) {
+        return activeScheduleViewCache.version(patientId);
+    }
+
+    // brings active medication schedules and times of the given view version, from Redis unless they changed
+    public List<MedicationScheduleResponseDto> getActiveSchedulesByPatient(Integer patientId, String version) {
+        return activeScheduleViewCache.view(patientId, version, () -> loadActiveSchedules(patientId));
+    }
+
+    private List<MedicationScheduleResponseDto> loadActiveSchedules(Integer patientId) {
         List<MedicationSchedule> activeSchedules = scheduleRepository.findByPatient_UserIdAndIsActiveTrue(patientId);
 
         if (activeSchedules.isEmpty()){
@@ -97,6 +134,8 @@ public class MedicationScheduleService {
         MedicationSchedule savedSchedule = scheduleRepository.save(schedule);
 
         saveScheduleTimes(savedSchedule, dto);
+        dispatchIndex.refreshSchedule(savedSchedule.getScheduleId());
+        activeScheduleViewCache.bump(patient.getUserId());
 
         List<MedicationScheduleTime> savedTimes = timeRepository.findBySchedule_ScheduleId(savedSchedule.getScheduleId());
         return MapperUtil.toMedicationScheduleResponseDto(savedSchedule, savedTimes);
@@ -151,6 +190,10 @@ public class MedicationScheduleService {
         }
 
         MedicationSchedule updatedSchedule = scheduleRepository.save(existing);
+        // name, dosage or times might have changed
+        dispatchIndex.refreshSchedule(scheduleId);
+        activeScheduleViewCache.bump(existing.getPatient().getUserId());
+
         List<MedicationScheduleTime> currentTimes = timeRepository.findBySchedule_ScheduleId(scheduleId);
         return MapperUtil.toMedicationScheduleResponseDto(updatedSchedule, currentTimes);
     }
@@ -176,13 +219,15 @@ public class MedicationScheduleService {
                 throw new IllegalArgumentException("You must enter at least 1 time(HH:mm) for medication schedules.");
             }
 
+            // one saveAll, the inserts go out as a single JDBC batch thanks to the sequence ids
+            List<MedicationScheduleTime> times = new ArrayList<>();
             for (LocalTime timeVal : dto.getTimes()) {
-                MedicationScheduleTime time = MedicationScheduleTime.builder()
+                times.add(MedicationScheduleTime.builder()
                         .schedule(schedule)
                         .scheduledTime(timeVal)
-                        .build();
-                timeRepository.save(time);
+                        .build());
             }
+            timeRepository.saveAll(times);
         }
     }
 
@@ -194,28 +239,159 @@ public class MedicationScheduleService {
 
         schedule.setIsActive(false);
         scheduleRepository.save(schedule);
+        dispatchIndex.removeSchedules(List.of(scheduleId));
+        activeScheduleViewCache.bump(schedule.getPatient().getUserId());
     }
 
     // cron job method, each night 00:05
     @Transactional
     public int autoDeactivateExpiredSchedules() {
-        return scheduleRepository.deactivateExpiredSchedules(LocalDate.now());
+        LocalDate today = LocalDate.now();
+
+        List<Integer> expiredScheduleIds = scheduleRepository.findExpiredActiveScheduleIds(today);
+        List<Integer> affectedPatientIds = scheduleRepository.findExpiredActivePatientIds(today);
+        int deactivated = scheduleRepository.deactivateExpiredSchedules(today);
+
+        dispatchIndex.removeSchedules(expiredScheduleIds);
+        activeScheduleViewCache.bump(affectedPatientIds);
+        return deactivated;
     }
 
     // we can't use <= time for medications because time only holds LocalTime and =<
-    // would send notifications for past medications as well
-    @Transactional
+    // would send notifications for past medications as well.
+    // due medications come from the in-memory dispatch index, the minute tick does not touch the db.
+    // The first tick of every grouping window notifies the whole window at once, the later ticks of the window only send
+    // medications added to its remaining minutes since (a schedule created or moved into the running window)
     public int processMedications(LocalTime now) {
-        List<MedicationScheduleTime> currentTimes = timeRepository.findBySchedule_IsActiveTrueAndScheduledTime(now);
+        int windowMinutes = Math.max(1, groupingWindowMinutes);
+        LocalDateTime tickAt = LocalDate.now().atTime(now.withSecond(0).withNano(0));
+        LocalDateTime windowStartAt = windowStart(tickAt, windowMinutes);
+
+        if (windowStartAt.equals(currentWindowStartAt)) {
+            return sendEntries(currentWindowStartAt, currentWindowEpoch, currentWindowShards,
+                    tickAt.getHour() * 60 + tickAt.getMinute(), windowEndMinute(windowStartAt, windowMinutes), currentWindowSent);
+        }
+
+        LocalDateTime lastWindowStartAt = currentWindowStartAt;
+        // also when the window's first tick was missed, the window then goes out late instead of never
+        int dueCount = dispatchWindow(windowStartAt, windowMinutes, false);
+        for (LocalDateTime missedStartAt : windowsToCatchUp(lastWindowStartAt, windowStartAt, windowMinutes)) {
+            dueCount += dispatchWindow(missedStartAt, windowMinutes, true);
+        }
+        return dueCount;
+    }
+
+    // sends the window's medications of this node's shard of the window's epoch, or with catchUp every shard no node has sent yet.
+    // Each shard of a window takes a run lock first, so it is sent exactly once across the cluster
+    private int dispatchWindow(LocalDateTime windowStartAt, int windowMinutes, boolean catchUp) {
+        ClusterCoordinator.Epoch epoch = clusterCoordinator.epochAt(windowStartAt);
+        // outlives every catch-up that can still reach the window
+        Duration lockTtl = Duration.ofMinutes(CATCH_UP_HORIZON_MINUTES + 2L * windowMinutes + 5);
+
+        Set<Integer> shards = new HashSet<>();
+        for (int shard = 0; shard < epoch.count(); shard++) {
+            if ((catchUp || shard == epoch.index())
+                    && clusterCoordinator.tryAcquireRun("medications", windowStartAt + ":" + shard, lockTtl)) {
+                shards.add(shard);
+            }
+        }
+
+        Set<Long> sent = new HashSet<>();
+        if (!catchUp) {
+            currentWindowStartAt = windowStartAt;
+            currentWindowEpoch = epoch;
+            currentWindowShards = shards;
+            currentWindowSent = sent;
+        }
+        if (shards.isEmpty()) {
+            return 0;
+        }
+
+        int windowStart = windowStartAt.getHour() * 60 + windowStartAt.getMinute();
+        int dueCount = sendEntries(windowStartAt, epoch, shards, windowStart, windowEndMinute(windowStartAt, windowMinutes), sent);
+        if (catchUp) {
+            log.warn("Medication window {} shards {} were not sent by their owner, {} medications sent late.", windowStartAt, shards, dueCount);
+        }
+        return dueCount;
+    }
+
+    // one digest per patient for the given shards' medications due in [fromMinute, toMinute) that are not in sent yet
+    private int sendEntries(LocalDateTime windowStartAt, ClusterCoordinator.Epoch epoch, Set<Integer> shards,
+                            int fromMinute, int toMinute, Set<Long> sent) {
+        if (shards.isEmpty()) {
+            return 0;
+        }
+
+        // a patient's due medications of the window, in time order
+        Map<Integer, List<MedicationDispatchEntry>> entriesByPatient = new LinkedHashMap<>();
+        int dueCount = 0;
+        for (int minute = fromMinute; minute < toMinute; minute++) {
+            for (MedicationDispatchEntry entry : dispatchIndex.entriesAt(LocalTime.of(minute / 60, minute % 60))) {
+                if (!shards.contains(epoch.shardOf(entry.patientId()))) {
+                    continue; // another node sends this patient's medications
+                }
+                // by schedule and minute: a schedule saved again with the same times (new time ids) is not sent twice
+                if (!sent.add((long) entry.scheduleId() * MINUTES_PER_DAY + minute)) {
+                    continue;
+                }
+                entriesByPatient.computeIfAbsent(entry.patientId(), id -> new ArrayList<>()).add(entry);
+                dueCount++;
+            }
+        }
+
+        // Patients with the same digest text share one fan-out
+        Map<String, List<Integer>> patientIdsByBody = new LinkedHashMap<>();
+        entriesByPatient.forEach((patientId, entries) ->
+                patientIdsByBody.computeIfAbsent(digestBody(entries), b -> new ArrayList<>()).add(patientId));
+
+        patientIdsByBody.forEach((body, patientIds) -> notificationService.sendScheduledNotificationToUsers(patientIds, "İlaç Vakti!", body, windowStartAt));
+        return dueCount;
+    }
 
-        int notificationCounter = 0;
-        for (MedicationScheduleTime time : currentTimes) {
-            String title = "İlaç Vakti!";
-            String body = time.getSchedule().getMedicationName() + " ilacından " + time.getSchedule().getDosage() + " alınız.";
+    // the windows before the current one to catch up, oldest first. Always the previous window: shards nobody sent
+    // (their node crashed or left before its tick) go out late instead of never. Also every window since the last one this node
+    // dispatched, whose ticks it missed (a tick that overran), as far back as the catch-up horizon
+    private static List<LocalDateTime> windowsToCatchUp(LocalDateTime lastWindowStartAt, LocalDateTime windowStartAt, int windowMinutes) {
+        LocalDateTime horizon = windowStartAt.minusMinutes(CATCH_UP_HORIZON_MINUTES);
+        List<LocalDateTime> windows = new ArrayList<>();
+        LocalDateTime missedStartAt = previousWindowStart(windowStartAt, windowMinutes);
+        windows.add(missedStartAt);
+        while (lastWindowStartAt != null) {
+            missedStartAt = previousWindowStart(missedStartAt, windowMinutes);
+            if (!missedStartAt.isAfter(lastWindowStartAt) || missedStartAt.isBefore(horizon)) {
+                break;
+            }
+            windows.add(missedStartAt);
+        }
+        Collections.reverse(windows);
+        return windows;
+    }
+
+    // windows start at midnight, the last one of a day may be shorter
+    private static LocalDateTime windowStart(LocalDateTime time, int windowMinutes) {
+        int minuteOfDay = time.getHour() * 60 + time.getMinute();
+        int start = minuteOfDay - minuteOfDay % windowMinutes;
+        return time.toLocalDate().atTime(start / 60, start % 60);
+    }
 
-            notificationService.sendNotificationToUser(time.getSchedule().getPatient().getUserId(), title, body);
-            notificationCounter++;
+    private static LocalDateTime previousWindowStart(LocalDateTime windowStartAt, int windowMinutes) {
+        return windowStart(windowStartAt.minusMinutes(1), windowMinutes);
+    }
+
+    // exclusive, a window never runs past midnight
+    private static int windowEndMinute(LocalDateTime windowStartAt, int windowMinutes) {
+        return Math.min(windowStartAt.getHour() * 60 + windowStartAt.getMinute() + windowMinutes, MINUTES_PER_DAY);
+    }
+
+    private String digestBody(List<MedicationDispatchEntry> entries) {
+        if (entries.size() == 1) {
+            MedicationDispatchEntry entry = entries.get(0);
+            return entry.medicationName() + " ilacından " + entry.dosage() + " alınız.";
         }
-        return notificationCounter;
+
+        String medications = entries.stream()
+                .map(entry -> entry.medicationName() + " (" + entry.dosage() + ")")
+                .collect(Collectors.joining(", "));
+        return entries.size() + " ilacınızın vakti geldi: " + medications;
     }
 }
\ No newline at end of file
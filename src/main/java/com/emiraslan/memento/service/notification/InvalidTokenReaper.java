@@ -0,0 +1,57 @@
+package com.emiraslan.memento.service.notification;
+
+import com.emiraslan.memento.dto.projection.NotificationTokenEntry;
+import com.emiraslan.memento.repository.device.NotificationTokenRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Collects fcm tokens FCM rejected as unregistered/invalid and deletes them in batches off the sending threads.
+// A stale token reported by many pushes is queued once. The user stays logged in, but the device will not receive
+// notifications until mobile registers a new fcm token
+@Component
+@RequiredArgsConstructor
+public class InvalidTokenReaper {
+
+    private static final int REAP_BATCH_SIZE = 1000;
+
+    private final NotificationTokenRepository notificationTokenRepository;
+    private final NotificationTokenCache notificationTokenCache;
+
+    private final Set<String> pendingTokens = ConcurrentHashMap.newKeySet();
+
+    // called by the sender threads, never blocks
+    public void report(String fcmToken) {
+        pendingTokens.add(fcmToken);
+    }
+
+    public boolean hasPending() {
+        return !pendingTokens.isEmpty();
+    }
+
+    // one bulk DELETE and one pipelined HDEL per batch
+    @Transactional
+    public int reap() {
+        List<String> batch = new ArrayList<>(REAP_BATCH_SIZE);
+        Iterator<String> iterator = pendingTokens.iterator();
+        while (iterator.hasNext() && batch.size() < REAP_BATCH_SIZE) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // owners of the tokens, to find their fields in the Redis hashes
+        List<NotificationTokenEntry> entries = notificationTokenRepository.findTokenEntriesByFcmTokens(batch);
+        int deleted = notificationTokenRepository.deleteByFcmTokens(batch);
+        notificationTokenCache.removeDevices(entries);
+        return deleted;
+    }
+}
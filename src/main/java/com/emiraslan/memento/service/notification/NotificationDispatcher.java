@@ -0,0 +1,319 @@
+package com.emiraslan.memento.service.notification;
+
+import com.emiraslan.memento.enums.NotificationPriority;
+import com.google.firebase.messaging.AndroidConfig;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Asynchronous FCM pipeline. Producers (crons, alerts) only put a PushNotification into a bounded queue and return.
+// Delivery is split into two lanes that share nothing but the FirebaseMessaging client:
+// - emergency: fall alerts (HIGH priority). Own queue, drainer and sender threads, so it never waits behind reminders
+// - bulk: medication and general reminders (NORMAL priority). Absorbs the 08:00 style storms
+// Each lane's drainer empties its queue, resolves the users' tokens from Redis and hands batches of up to 500 messages
+// to the lane's sender pool that calls FirebaseMessaging.sendEach. Neither the cron thread nor any db transaction waits on Google.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationDispatcher {
+
+    // FCM rejects sendEach calls with more than 500 messages
+    private static final int FCM_MAX_BATCH_SIZE = 500;
+    // on shutdown each lane gets this long to hand over its queue and finish sending
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+    // how often an idle drainer checks whether the lane is stopping
+    private static final long DRAIN_POLL_MILLIS = 200;
+
+    private final NotificationTokenCache notificationTokenCache;
+    private final InvalidTokenReaper invalidTokenReaper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${memento.notification.emergency.queue-capacity}")
+    private int emergencyQueueCapacity;
+
+    @Value("${memento.notification.emergency.batch-size}")
+    private int emergencyBatchSize;
+
+    @Value("${memento.notification.emergency.sender-threads}")
+    private int emergencySenderThreads;
+
+    @Value("${memento.notification.bulk.queue-capacity}")
+    private int bulkQueueCapacity;
+
+    @Value("${memento.notification.bulk.batch-size}")
+    private int bulkBatchSize;
+
+    @Value("${memento.notification.bulk.sender-threads}")
+    private int bulkSenderThreads;
+
+    private Lane emergencyLane;
+    private Lane bulkLane;
+
+    @PostConstruct
+    void start() {
+        emergencyLane = new Lane("emergency", emergencyQueueCapacity, emergencyBatchSize, emergencySenderThreads);
+        bulkLane = new Lane("bulk", bulkQueueCapacity, bulkBatchSize, bulkSenderThreads);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        emergencyLane.stop();
+        bulkLane.stop();
+    }
+
+    // non-blocking, returns false if the lane's queue is full and the notification was dropped
+    public boolean enqueue(PushNotification notification) {
+        return laneOf(notification.priority()).offer(notification);
+    }
+
+    public int queueSize(NotificationPriority priority) {
+        return laneOf(priority).queue.size();
+    }
+
+    private Lane laneOf(NotificationPriority priority) {
+        return priority == NotificationPriority.HIGH ? emergencyLane : bulkLane;
+    }
+
+    // a notification together with the moment it entered the queue, for the enqueue -> FCM latency metric
+    private record QueuedPush(PushNotification notification, long enqueuedAtNanos) {
+    }
+
+    private final class Lane {
+
+        private final String name;
+        private final int capacity;
+        private final int batchSize;
+        private final BlockingQueue<QueuedPush> queue;
+        private final ExecutorService senderPool;
+        private final Thread drainer;
+        private final Timer latency;
+        private final Timer fcmDuration;
+        private final Timer deliveryLag;
+        private volatile boolean stopping;
+
+        private Lane(String name, int capacity, int batchSize, int senderThreads) {
+            this.name = name;
+            this.capacity = capacity;
+            this.batchSize = batchSize;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+
+            // bounded hand-off: when every sender is busy the drainer sends the batch itself, which slows down draining instead of piling up batches
+            this.senderPool = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(senderThreads * 2),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "fcm-sender-" + name);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+
+            Gauge.builder("memento.notification.queue.depth", queue, BlockingQueue::size)
+                    .description("Notifications waiting to be sent")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            this.latency = Timer.builder("memento.notification.latency")
+                    .description("Time from enqueue until FCM accepted or rejected the message")
+                    .tag("lane", name)
+                    .publishPercentiles(0.5, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.fcmDuration = Timer.builder("memento.notification.fcm.duration")
+                    .description("Duration of one sendEach call to FCM")
+                    .tag("lane", name)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.deliveryLag = Timer.builder("memento.notification.delivery.lag")
+                    .description("Time from a scheduled notification's due time until FCM accepted or rejected it")
+                    .tag("lane", name)
+                    .publishPercentiles(0.5, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+
+            this.drainer = new Thread(this::drainLoop, "fcm-dispatcher-" + name);
+            this.drainer.setDaemon(true);
+            this.drainer.start();
+        }
+
+        private boolean offer(PushNotification notification) {
+            boolean accepted = queue.offer(new QueuedPush(notification, System.nanoTime()));
+            if (!accepted) {
+                log.error("Notification {} queue is full ({}), dropped notification for UserIds: {}", name, capacity, notification.userIds());
+            }
+            return accepted;
+        }
+
+        // the drainer first hands everything still queued to the senders (their reminders are already advanced in the db),
+        // then the senders finish. Both within SHUTDOWN_TIMEOUT, whatever is left after that is lost
+        private void stop() throws InterruptedException {
+            long deadline = System.nanoTime() + SHUTDOWN_TIMEOUT.toNanos();
+            stopping = true;
+            drainer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            if (drainer.isAlive()) {
+                drainer.interrupt();
+            }
+            senderPool.shutdown();
+            if (!senderPool.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) || !queue.isEmpty()) {
+                log.warn("FCM {} lane did not finish in time, {} notifications left in the queue.", name, queue.size());
+            }
+        }
+
+        private void drainLoop() {
+            List<QueuedPush> drained = new ArrayList<>(batchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    // wait for the first notification, then grab whatever else is already waiting
+                    QueuedPush first = queue.poll(DRAIN_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        if (stopping) {
+                            return; // queue is empty
+                        }
+                        continue;
+                    }
+                    drained.add(first);
+                    queue.drainTo(drained, batchSize - 1);
+                    dispatch(drained);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.error("Notification {} lane failed to process {} notifications. ERROR: {}", name, drained.size(), e.getMessage(), e);
+                } finally {
+                    drained.clear();
+                }
+            }
+        }
+
+        // turns notifications into one FCM message per device token and sends them in chunks
+        private void dispatch(List<QueuedPush> pushes) {
+            List<Message> messages = new ArrayList<>();
+            List<String> messageTokens = new ArrayList<>(); // parallel to messages, to find the failed token of a response
+            List<QueuedPush> messagePushes = new ArrayList<>(); // parallel to messages, for the latency and lag timers
+
+            // tokens of every user in the batch in one Redis round-trip, cache misses in one db query
+            Map<Integer, List<String>> tokensByUser = notificationTokenCache.tokensOf(
+                    pushes.stream().flatMap(push -> push.notification().userIds().stream()).toList());
+
+            for (QueuedPush push : pushes) {
+                PushNotification notification = push.notification();
+
+                // a device shared by several recipients gets the notification once
+                Set<String> tokens = new LinkedHashSet<>();
+                for (Integer userId : notification.userIds()) {
+                    List<String> userTokens = tokensByUser.getOrDefault(userId, List.of());
+                    if (userTokens.isEmpty()) {
+                        log.warn("No Notification Tokens found for UserID: {}", userId);
+                    }
+                    tokens.addAll(userTokens);
+                }
+
+                for (String tokenString : tokens) {
+                    messages.add(buildMessage(tokenString, notification));
+                    messageTokens.add(tokenString);
+                    messagePushes.add(push);
+                }
+            }
+
+            for (int from = 0; from < messages.size(); from += FCM_MAX_BATCH_SIZE) {
+                int to = Math.min(from + FCM_MAX_BATCH_SIZE, messages.size());
+                List<Message> chunk = List.copyOf(messages.subList(from, to));
+                List<String> chunkTokens = List.copyOf(messageTokens.subList(from, to));
+                List<QueuedPush> chunkPushes = List.copyOf(messagePushes.subList(from, to));
+
+                senderPool.execute(() -> sendBatch(chunk, chunkTokens, chunkPushes));
+            }
+        }
+
+        private void sendBatch(List<Message> messages, List<String> tokens, List<QueuedPush> pushes) {
+            try {
+                // send the batch to Google
+                Timer.Sample fcmSample = Timer.start();
+                BatchResponse batchResponse;
+                try {
+                    batchResponse = FirebaseMessaging.getInstance().sendEach(messages);
+                } finally {
+                    fcmSample.stop(fcmDuration);
+                }
+                log.info("FCM {} batch sent: {} succeeded, {} failed.", name, batchResponse.getSuccessCount(), batchResponse.getFailureCount());
+
+                List<SendResponse> responses = batchResponse.getResponses();
+                for (int i = 0; i < responses.size(); i++) {
+                    SendResponse response = responses.get(i);
+                    if (response.isSuccessful()) {
+                        continue;
+                    }
+
+                    if (isInvalidToken(response.getException())) {
+                        invalidTokenReaper.report(tokens.get(i)); // deleted from the db and redis in the background
+                    }
+                }
+            } catch (Exception e) {
+                log.error("FCM {} batch of {} messages failed. ERROR: {}", name, messages.size(), e.getMessage());
+            } finally {
+                long now = System.nanoTime();
+                LocalDateTime deliveredAt = LocalDateTime.now();
+                for (QueuedPush push : pushes) {
+                    latency.record(now - push.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+
+                    // grouped medications may go out a little before their due time, that counts as no lag
+                    LocalDateTime dueAt = push.notification().dueAt();
+                    if (dueAt != null) {
+                        Duration lag = Duration.between(dueAt, deliveredAt);
+                        deliveryLag.record(lag.isNegative() ? Duration.ZERO : lag);
+                    }
+                }
+            }
+        }
+    }
+
+    private Message buildMessage(String token, PushNotification notification) {
+        AndroidConfig.Priority androidPriority = notification.priority() == NotificationPriority.HIGH
+                ? AndroidConfig.Priority.HIGH
+                : AndroidConfig.Priority.NORMAL;
+
+        return Message.builder()
+                .setToken(token)
+                .setNotification(Notification.builder()
+                        .setTitle(notification.title())
+                        .setBody(notification.body())
+                        .build())
+                .setAndroidConfig(AndroidConfig.builder()
+                        .setPriority(androidPriority)
+                        .build())
+                .build();
+    }
+
+    // UNREGISTERED: the app was uninstalled or the token expired. INVALID_ARGUMENT on a single-token send with our fixed payload
+    // means the token itself is malformed. Any other error (quota, unavailable, internal) is not the token's fault
+    private static boolean isInvalidToken(FirebaseMessagingException exception) {
+        if (exception == null) {
+            return false;
+        }
+        MessagingErrorCode errorCode = exception.getMessagingErrorCode();
+        return errorCode == MessagingErrorCode.UNREGISTERED || errorCode == MessagingErrorCode.INVALID_ARGUMENT;
+    }
+}
@@ -3,30 +3,29 @@ package com.emiraslan.memento.service.notification;
 import com.emiraslan.memento.dto.request.NotificationTokenRegisterRequestDto;
 import com.emiraslan.memento.entity.NotificationToken;
 import com.emiraslan.memento.entity.UserDevice;
+import com.emiraslan.memento.enums.NotificationPriority;
 import com.emiraslan.memento.repository.device.NotificationTokenRepository;
 import com.emiraslan.memento.repository.device.UserDeviceRepository;
-import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.firebase.messaging.Message;
-import com.google.firebase.messaging.Notification;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
-    private final StringRedisTemplate redisTemplate;
+    private final NotificationTokenCache notificationTokenCache;
     private final NotificationTokenRepository notificationTokenRepository;
     private final UserDeviceRepository userDeviceRepository;
+    private final NotificationDispatcher notificationDispatcher;
 
     @Transactional
     public void upsertNotificationToken(Integer userId, NotificationTokenRegisterRequestDto dto) {
@@ -35,9 +34,7 @@ public class NotificationService {
         UserDevice device = userDeviceRepository.findById(dto.getDeviceId())
                 .orElseThrow(() -> new EntityNotFoundException("USER_DEVICE_NOT_FOUND"));
 
-        String redisKey = "notificationTokens:user:" + userId;
         String newFcmToken = dto.getFcmToken();
-        String deviceIdString = String.valueOf(device.getDeviceId());
 
         // check if there's a NotificationToken for this device
         NotificationToken notificationToken = notificationTokenRepository.findByUserDevice_DeviceId(device.getDeviceId())
@@ -47,71 +44,40 @@ public class NotificationService {
         notificationToken.setFcmToken(newFcmToken);
         notificationToken.setLastUpdated(LocalDateTime.now());
 
-        // save it to db and redis
+        // save it to db, the user's cached tokens are reloaded on the next push
         notificationTokenRepository.save(notificationToken);
+        notificationTokenCache.evict(userId);
 
-        // hash structure holds a users every device, automatically replaces old notification tokens
-        redisTemplate.opsForHash().put(redisKey, deviceIdString, newFcmToken);
-
-        log.info("FCM Token successfully linked to Device ID: {} and saved to Redis for User: {}",
+        log.info("FCM Token successfully linked to Device ID: {} for User: {}",
                 device.getDeviceId(), device.getUser().getUserId());
     }
 
-    // no transactional annotation because the request goes to Google FCM
+    // no transactional annotation, the push is only queued. NotificationDispatcher resolves the tokens and talks to Google FCM
     public void sendNotificationToUser(Integer userId, String title, String body) {
+        sendNotificationToUser(userId, title, body, NotificationPriority.NORMAL);
+    }
 
-        String redisKey = "notificationTokens:user:" + userId;
+    public void sendNotificationToUser(Integer userId, String title, String body, NotificationPriority priority) {
+        notificationDispatcher.enqueue(new PushNotification(List.of(userId), title, body, priority, null));
+    }
 
-        // pull all notification tokens in the hash as a list
-        List<Object> tokens = redisTemplate.opsForHash().values(redisKey);
+    // fan-out of the same notification: one queue slot, tokens of all users resolved together and deduplicated by the dispatcher
+    public void sendNotificationToUsers(Collection<Integer> userIds, String title, String body) {
+        sendNotificationToUsers(userIds, title, body, NotificationPriority.NORMAL);
+    }
 
-        if (tokens.isEmpty()) {
-            log.warn("No Notification Tokens found in Redis for UserID: {}", userId);
+    public void sendNotificationToUsers(Collection<Integer> userIds, String title, String body, NotificationPriority priority) {
+        if (userIds.isEmpty()) {
             return;
         }
-
-        // token strings directly from redis
-        for (Object tokenObj : tokens) {
-            String tokenString = (String) tokenObj;
-            try {
-                // create the message
-                Message message = Message.builder()
-                        .setToken(tokenString)
-                        .setNotification(Notification.builder()
-                                .setTitle(title)
-                                .setBody(body)
-                                .build())
-                        .build();
-
-                // send it to Google
-                FirebaseMessaging.getInstance().send(message);
-                // successful notifications are logged by the cron job
-            } catch (Exception e) {
-                log.error("Failed to send notification to UserId: {}. ERROR: {}", userId, e.getMessage());
-
-                if (e.getMessage() != null && (e.getMessage().contains("registration-token-not-registered") ||
-                        e.getMessage().contains("invalid-argument"))) {
-                    deleteInvalidFcmToken(tokenString); // deleting the invalid token from the db and redis
-                }
-            }
-        }
+        notificationDispatcher.enqueue(new PushNotification(List.copyOf(new LinkedHashSet<>(userIds)), title, body, priority, null));
     }
 
-    private void deleteInvalidFcmToken(String fcmTokenString) {
-        Optional<NotificationToken> tokenOpt = notificationTokenRepository.findByFcmToken(fcmTokenString);
-        if (tokenOpt.isPresent()) {
-            NotificationToken token = tokenOpt.get();
-            UserDevice device = token.getUserDevice();
-
-            String redisKey = "notificationTokens:user:" + device.getUser().getUserId();
-            String deviceIdString = String.valueOf(device.getDeviceId());
-
-            redisTemplate.opsForHash().delete(redisKey, deviceIdString); // delete the deviceId key in Redis hash
-
-            // deletes the NotificationToken. The user will stay logged in, but they will not receive notifications until mobile updates the fcmToken
-            notificationTokenRepository.delete(token);
-
-            log.warn("Invalid NotificationToken deleted from DB and Redis: {}", fcmTokenString);
+    // medication and reminder pushes carry their due time, the dispatcher measures how late they were delivered
+    public void sendScheduledNotificationToUsers(Collection<Integer> userIds, String title, String body, LocalDateTime dueAt) {
+        if (userIds.isEmpty()) {
+            return;
         }
+        notificationDispatcher.enqueue(new PushNotification(List.copyOf(new LinkedHashSet<>(userIds)), title, body, NotificationPriority.NORMAL, dueAt));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,226 @@
+package com.emiraslan.memento.service.notification;
+
+import com.emiraslan.memento.dto.projection.NotificationTokenEntry;
+import com.emiraslan.memento.repository.device.NotificationTokenRepository;
+import com.emiraslan.memento.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+// Read-through cache of users' fcm tokens: "notificationTokens:cache:user:<userId>" -> {deviceId: fcmToken}.
+// The db stays the source of truth. A miss loads the user from NotificationTokenRepository, so an evicted or flushed key
+// only costs a query, never a lost notification. Users without tokens are cached as a sentinel field with a shorter TTL.
+// Writes don't update the hash, they drop it after commit and the next read loads the committed state.
+// Every write also increments the user's generation ("...:user:<userId>:gen"). A miss reads the generation before its query and
+// only writes its result back if the generation is unchanged, so a reader that loaded before a commit can't restore old tokens.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationTokenCache {
+
+    private static final String KEY_ROOT = "notificationTokens:";
+    private static final String KEY_PREFIX = KEY_ROOT + "cache:user:";
+    private static final String CLEANUP_MARKER_KEY = KEY_ROOT + "cache:legacy-cleaned";
+    private static final String NO_TOKENS_FIELD = "none"; // device ids are numeric, can't collide
+    private static final String GENERATION_SUFFIX = ":gen"; // under KEY_PREFIX, so the legacy cleanup leaves it alone
+
+    // only has to outlive a reader's query, a generation that expired reads as "" and a write recreates it at 1
+    private static final long GENERATION_TTL_SECONDS = Duration.ofDays(1).toSeconds();
+
+    // KEYS[1] hash, KEYS[2] generation. ARGV[1] generation the reader saw before its query, ARGV[2] ttl, then field/value pairs
+    private static final String WRITE_BACK_SCRIPT =
+            "if (redis.call('GET', KEYS[2]) or '') ~= ARGV[1] then return 0 end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('HSET', KEYS[1], unpack(ARGV, 3)) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1";
+
+    private static final int IN_QUERY_CHUNK_SIZE = 1000;
+    private static final int UNLINK_BATCH_SIZE = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final NotificationTokenRepository notificationTokenRepository;
+
+    @Value("${memento.notification.token-cache.ttl-minutes}")
+    private long ttlMinutes;
+
+    @Value("${memento.notification.token-cache.negative-ttl-minutes}")
+    private long negativeTtlMinutes;
+
+    public List<String> tokensOf(Integer userId) {
+        return tokensOf(List.of(userId)).getOrDefault(userId, List.of());
+    }
+
+    // one pipelined round-trip for all users, then one IN query for all misses
+    public Map<Integer, List<String>> tokensOf(Collection<Integer> userIds) {
+        List<Integer> ids = List.copyOf(new LinkedHashSet<>(userIds));
+        Map<Integer, List<String>> tokensByUser = new HashMap<>();
+        if (ids.isEmpty()) {
+            return tokensByUser;
+        }
+
+        List<Object> hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            ids.forEach(id -> stringConnection.hGetAll(KEY_PREFIX + id));
+            return null;
+        });
+
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> hash = (Map<String, String>) hashes.get(i);
+
+            if (hash == null || hash.isEmpty()) {
+                misses.add(ids.get(i));
+            } else {
+                List<String> tokens = new ArrayList<>(hash.size());
+                hash.forEach((field, token) -> {
+                    if (!NO_TOKENS_FIELD.equals(field)) {
+                        tokens.add(token);
+                    }
+                });
+                tokensByUser.put(ids.get(i), tokens);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            tokensByUser.putAll(loadMisses(misses));
+        }
+        return tokensByUser;
+    }
+
+    // drops the user's hash once the caller's transaction commits (token registered, device deleted, token invalid)
+    public void evict(Integer userId) {
+        TransactionUtil.runAfterCommit(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            bumpGeneration(stringConnection, userId);
+            stringConnection.del(KEY_PREFIX + userId);
+            return null;
+        }));
+    }
+
+    // removes single devices from their users' hashes in one pipelined round-trip, once the caller's transaction commits
+    public void removeDevices(Collection<NotificationTokenEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        TransactionUtil.runAfterCommit(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            entries.forEach(entry -> {
+                bumpGeneration(stringConnection, entry.userId());
+                stringConnection.hDel(KEY_PREFIX + entry.userId(), String.valueOf(entry.deviceId()));
+            });
+            return null;
+        }));
+    }
+
+    private Map<Integer, List<String>> loadMisses(List<Integer> userIds) {
+        // read before the query: a write committing after this point changes the generation, one before it is in the query
+        List<String> generations = redisTemplate.opsForValue().multiGet(userIds.stream().map(this::generationKey).toList());
+
+        Map<Integer, Map<String, String>> hashes = new HashMap<>();
+        userIds.forEach(id -> hashes.put(id, new HashMap<>()));
+
+        for (int from = 0; from < userIds.size(); from += IN_QUERY_CHUNK_SIZE) {
+            List<Integer> chunk = userIds.subList(from, Math.min(from + IN_QUERY_CHUNK_SIZE, userIds.size()));
+            for (NotificationTokenEntry entry : notificationTokenRepository.findTokenEntriesByUserIds(chunk)) {
+                hashes.get(entry.userId()).put(String.valueOf(entry.deviceId()), entry.fcmToken());
+            }
+        }
+
+        // the script skips users whose tokens changed since the generation was read, their next read loads them again
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (int i = 0; i < userIds.size(); i++) {
+                Integer userId = userIds.get(i);
+                Map<String, String> hash = hashes.get(userId);
+                String generation = generations == null || generations.get(i) == null ? "" : generations.get(i);
+
+                List<String> keysAndArgs = new ArrayList<>(4 + hash.size() * 2);
+                keysAndArgs.add(KEY_PREFIX + userId);
+                keysAndArgs.add(generationKey(userId));
+                keysAndArgs.add(generation);
+                if (hash.isEmpty()) {
+                    keysAndArgs.add(String.valueOf(negativeTtlMinutes * 60));
+                    keysAndArgs.add(NO_TOKENS_FIELD);
+                    keysAndArgs.add("1");
+                } else {
+                    keysAndArgs.add(String.valueOf(ttlMinutes * 60));
+                    hash.forEach((deviceId, token) -> {
+                        keysAndArgs.add(deviceId);
+                        keysAndArgs.add(token);
+                    });
+                }
+                stringConnection.eval(WRITE_BACK_SCRIPT, ReturnType.INTEGER, 2, keysAndArgs.toArray(String[]::new));
+            }
+            return null;
+        });
+
+        Map<Integer, List<String>> tokensByUser = new HashMap<>();
+        hashes.forEach((userId, hash) -> tokensByUser.put(userId, new ArrayList<>(hash.values())));
+        return tokensByUser;
+    }
+
+    private void bumpGeneration(StringRedisConnection connection, Integer userId) {
+        connection.incr(generationKey(userId));
+        connection.expire(generationKey(userId), GENERATION_TTL_SECONDS);
+    }
+
+    private String generationKey(Integer userId) {
+        return KEY_PREFIX + userId + GENERATION_SUFFIX;
+    }
+
+    // one-time cleanup of the keys written by the old startup preload, they have no TTL and would never leave Redis.
+    // SCAN instead of KEYS so Redis is never blocked, UNLINK instead of DEL so the memory is freed off the main thread
+    @EventListener(ApplicationReadyEvent.class)
+    public void unlinkPreloadedKeys() {
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(CLEANUP_MARKER_KEY, "1"))) {
+            return; // already done by this or another node
+        }
+
+        long removed = 0;
+        List<String> batch = new ArrayList<>(UNLINK_BATCH_SIZE);
+
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_ROOT + "*").count(1000).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                if (key.startsWith(KEY_PREFIX) || key.equals(CLEANUP_MARKER_KEY)) {
+                    continue;
+                }
+                batch.add(key);
+                if (batch.size() == UNLINK_BATCH_SIZE) {
+                    removed += unlink(batch);
+                }
+            }
+        }
+        removed += unlink(batch);
+        log.info("Unlinked {} preloaded notification token keys.", removed);
+    }
+
+    private long unlink(List<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Long unlinked = redisTemplate.unlink(keys);
+        keys.clear();
+        return unlinked == null ? 0 : unlinked;
+    }
+}
@@ -0,0 +1,18 @@
+package com.emiraslan.memento.service.notification;
+
+import com.emiraslan.memento.enums.NotificationPriority;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// a push waiting in the NotificationDispatcher queue, the same title and body go to every user in userIds.
+// Tokens are resolved by the dispatcher, not the producer. dueAt is the scheduled time of medication and reminder pushes
+// (for the delivery lag metric), null for unscheduled ones like alerts
+public record PushNotification(
+        List<Integer> userIds,
+        String title,
+        String body,
+        NotificationPriority priority,
+        LocalDateTime dueAt
+) {
+}
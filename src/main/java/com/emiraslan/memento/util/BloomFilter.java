@@ -0,0 +1,50 @@
+package com.emiraslan.memento.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed size Bloom filter over SHA-256 hex strings. mightContain never returns false for a value that was put,
+// false positives happen at roughly the configured rate. Lock-free: bits are only ever set, never cleared.
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        // standard sizing: m = -n ln(p) / (ln 2)^2, k = m / n ln 2
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, optimalBits);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((bitCount + 63) / 64));
+    }
+
+    public void put(String sha256Hex) {
+        long hash1 = Long.parseUnsignedLong(sha256Hex.substring(0, 16), 16);
+        long hash2 = Long.parseUnsignedLong(sha256Hex.substring(16, 32), 16);
+
+        for (int i = 0; i < hashCount; i++) {
+            long bitIndex = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            int word = (int) (bitIndex >>> 6);
+            long mask = 1L << bitIndex;
+
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String sha256Hex) {
+        long hash1 = Long.parseUnsignedLong(sha256Hex.substring(0, 16), 16);
+        long hash2 = Long.parseUnsignedLong(sha256Hex.substring(16, 32), 16);
+
+        // double hashing: the k bit positions are derived from two independent 64 bit parts of the digest
+        for (int i = 0; i < hashCount; i++) {
+            long bitIndex = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package com.emiraslan.memento.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+public class HashUtil {
+
+    // SHA-256 of the value as a 64 character lowercase hex string
+    public static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256"); // get sha-256 instance
+            byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8)); // turn the value into a byte array
+
+            StringBuilder hexString = new StringBuilder(64);
+
+            for (byte b : hash) {
+                String hex = Integer.toHexString(0xff & b); // turns the negative valued bytes into 0-255 integers and convert them to hexadecimals
+                if (hex.length() == 1) hexString.append('0'); // add 0 if the hex is 1 letter.  a -> 0a
+                hexString.append(hex);
+            }
+            return hexString.toString();
+        } catch (Exception e) {
+            throw new RuntimeException("Error hashing value with SHA-256", e);
+        }
+    }
+}
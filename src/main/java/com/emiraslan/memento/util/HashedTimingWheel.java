@@ -0,0 +1,134 @@
+package com.emiraslan.memento.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Hashed timing wheel: a ring of slots, one per tick. A timer is put in slot (deadline / tick) % wheelSize,
+// timers of later turns share the slot and simply wait until their deadline's tick comes around.
+// schedule and cancel are O(1) and every tick only looks at a single slot, no matter how many timers are waiting.
+// One daemon thread drives the wheel and hands the expired values to the handler.
+@Slf4j
+public class HashedTimingWheel<K, V> {
+
+    private record Timeout<V>(V value, long deadlineMillis, int slot) {
+    }
+
+    private final String name;
+    private final long tickMillis;
+    private final int wheelSize;
+    private final Consumer<List<V>> expiredHandler;
+
+    private final List<Map<K, Timeout<V>>> slots;
+    private final Map<K, Timeout<V>> timeouts = new HashMap<>(); // key -> its timeout, for cancel and reschedule
+
+    private long lastTick; // last tick number the wheel processed
+    private Thread worker;
+
+    public HashedTimingWheel(String name, long tickMillis, int wheelSize, Consumer<List<V>> expiredHandler) {
+        this.name = name;
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.expiredHandler = expiredHandler;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            slots.add(new LinkedHashMap<>());
+        }
+        this.lastTick = System.currentTimeMillis() / tickMillis - 1;
+    }
+
+    public synchronized void start() {
+        lastTick = System.currentTimeMillis() / tickMillis - 1;
+        worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    // adds or replaces the key's timer. Deadlines that have already passed fire on the next tick
+    public synchronized void schedule(K key, long deadlineMillis, V value) {
+        removeLocked(key);
+
+        long tick = Math.max(deadlineMillis / tickMillis, lastTick + 1);
+        int slot = (int) (tick % wheelSize);
+        Timeout<V> timeout = new Timeout<>(value, deadlineMillis, slot);
+
+        timeouts.put(key, timeout);
+        slots.get(slot).put(key, timeout);
+    }
+
+    public synchronized boolean cancel(K key) {
+        return removeLocked(key);
+    }
+
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    private boolean removeLocked(K key) {
+        Timeout<V> existing = timeouts.remove(key);
+        if (existing == null) {
+            return false;
+        }
+        slots.get(existing.slot()).remove(key);
+        return true;
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            // sleep until the start of the next tick
+            long now = System.currentTimeMillis();
+            long nextTickAt = (now / tickMillis + 1) * tickMillis;
+            try {
+                Thread.sleep(nextTickAt - now);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            List<V> expired = advance(System.currentTimeMillis());
+            if (expired.isEmpty()) {
+                continue;
+            }
+            // the handler runs outside the lock, it may schedule new timers
+            try {
+                expiredHandler.accept(expired);
+            } catch (Exception e) {
+                log.error("Timing wheel {} failed to handle {} expired timers. ERROR: {}", name, expired.size(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private synchronized List<V> advance(long now) {
+        long currentTick = now / tickMillis;
+        long tickEnd = (currentTick + 1) * tickMillis;
+        List<V> expired = new ArrayList<>();
+
+        // also processes the slots skipped since the last tick (GC pause, slow handler), at most one full turn
+        long fromTick = Math.max(lastTick + 1, currentTick - wheelSize + 1);
+        for (long tick = fromTick; tick <= currentTick; tick++) {
+            Iterator<Map.Entry<K, Timeout<V>>> iterator = slots.get((int) (tick % wheelSize)).entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<K, Timeout<V>> entry = iterator.next();
+                if (entry.getValue().deadlineMillis() < tickEnd) { // timers of later turns stay in the slot
+                    iterator.remove();
+                    timeouts.remove(entry.getKey());
+                    expired.add(entry.getValue().value());
+                }
+            }
+        }
+        lastTick = currentTick;
+        return expired;
+    }
+}
@@ -0,0 +1,51 @@
+package com.emiraslan.memento.util;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Identity map that lives as long as the current http request: a value loaded once (by a guard) is reused by every later
+// lookup of the same key in the request (other guards, the service call). Outside a request every lookup simply loads
+public class RequestIdentityMap {
+
+    private static final String ATTRIBUTE = RequestIdentityMap.class.getName();
+
+    // failed loads (exceptions) are not stored
+    public static <T> T computeIfAbsent(String namespace, Object id, Supplier<T> loader) {
+        Map<String, Object> map = currentMap();
+        if (map == null) {
+            return loader.get();
+        }
+
+        String key = namespace + ":" + id;
+        @SuppressWarnings("unchecked")
+        T cached = (T) map.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        T loaded = loader.get();
+        if (loaded != null) {
+            map.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    private static Map<String, Object> currentMap() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> map = (Map<String, Object>) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (map == null) {
+            map = new HashMap<>(); // a request is served by one thread
+            attributes.setAttribute(ATTRIBUTE, map, RequestAttributes.SCOPE_REQUEST);
+        }
+        return map;
+    }
+}
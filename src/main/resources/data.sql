@@ -1,18 +1,19 @@
 -- ==========================================
--- USERS (IDs: 1=Patient, 2=Doctor, 3=Relative1, 4=Relative2)
+-- USERS (Patient, Doctor, Relative1, Relative2)
+-- Ids of every table come from its "<table>_seq" sequence, the same one Hibernate uses (pooled-lo, 50 per nextval)
 -- Password for all: 1234567Ab+
 -- ==========================================
-INSERT INTO users (email, password_hash, first_name, last_name, phone_number, gender, role, is_email_verified, created_at)
-VALUES ('demo.patient@test.com', '$2a$10$y4AUDJTufaJLc.cLE2JzI.jrdCzY62ZY0H.DsAboQFx8kGuJh6vmW', 'Ahmet', 'Yilmaz', '05551112233', 'MALE', 'PATIENT', true, CURRENT_TIMESTAMP);
+INSERT INTO users (user_id, email, password_hash, first_name, last_name, phone_number, gender, role, is_email_verified, created_at)
+VALUES (nextval('users_seq'), 'demo.patient@test.com', '$2a$10$y4AUDJTufaJLc.cLE2JzI.jrdCzY62ZY0H.DsAboQFx8kGuJh6vmW', 'Ahmet', 'Yilmaz', '05551112233', 'MALE', 'PATIENT', true, CURRENT_TIMESTAMP);
 
-INSERT INTO users (email, password_hash, first_name, last_name, phone_number, gender, role, is_email_verified, created_at)
-VALUES ('demo.doctor@test.com', '$2a$10$y4AUDJTufaJLc.cLE2JzI.jrdCzY62ZY0H.DsAboQFx8kGuJh6vmW', 'Zeynep', 'Kaya', '05554445566', 'FEMALE', 'DOCTOR', true, CURRENT_TIMESTAMP);
+INSERT INTO users (user_id, email, password_hash, first_name, last_name, phone_number, gender, role, is_email_verified, created_at)
+VALUES (nextval('users_seq'), 'demo.doctor@test.com', '$2a$10$y4AUDJTufaJLc.cLE2JzI.jrdCzY62ZY0H.DsAboQFx8kGuJh6vmW', 'Zeynep', 'Kaya', '05554445566', 'FEMALE', 'DOCTOR', true, CURRENT_TIMESTAMP);
 
-INSERT INTO users (email, password_hash, first_name, last_name, phone_number, gender, role, is_email_verified, created_at)
-VALUES ('demo.son@test.com', '$2a$10$y4AUDJTufaJLc.cLE2JzI.jrdCzY62ZY0H.DsAboQFx8kGuJh6vmW', 'Mehmet', 'Yilmaz', '05557778899', 'MALE', 'RELATIVE', true, CURRENT_TIMESTAMP);
+INSERT INTO users (user_id, email, password_hash, first_name, last_name, phone_number, gender, role, is_email_verified, created_at)
+VALUES (nextval('users_seq'), 'demo.son@test.com', '$2a$10$y4AUDJTufaJLc.cLE2JzI.jrdCzY62ZY0H.DsAboQFx8kGuJh6vmW', 'Mehmet', 'Yilmaz', '05557778899', 'MALE', 'RELATIVE', true, CURRENT_TIMESTAMP);
 
-INSERT INTO users (email, password_hash, first_name, last_name, phone_number, gender, role, is_email_verified, created_at)
-VALUES ('demo.daughter@test.com', '$2a$10$y4AUDJTufaJLc.cLE2JzI.jrdCzY62ZY0H.DsAboQFx8kGuJh6vmW', 'Ayse', 'Demir', '05550001122', 'FEMALE', 'RELATIVE', true, CURRENT_TIMESTAMP);
+INSERT INTO users (user_id, email, password_hash, first_name, last_name, phone_number, gender, role, is_email_verified, created_at)
+VALUES (nextval('users_seq'), 'demo.daughter@test.com', '$2a$10$y4AUDJTufaJLc.cLE2JzI.jrdCzY62ZY0H.DsAboQFx8kGuJh6vmW', 'Ayse', 'Demir', '05550001122', 'FEMALE', 'RELATIVE', true, CURRENT_TIMESTAMP);
 
 -- ==========================================
 -- PROFILES
@@ -33,24 +34,27 @@ VALUES (
 -- RELATIONSHIPS
 -- ==========================================
 -- Patient <-> Son
-INSERT INTO patient_relationships (patient_user_id, caregiver_user_id, relationship_type, is_primary_contact, is_active)
+INSERT INTO patient_relationships (relationship_id, patient_user_id, caregiver_user_id, relationship_type, is_primary_contact, is_active)
 VALUES (
+    nextval('patient_relationships_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'),
     (SELECT user_id FROM users WHERE email = 'demo.son@test.com'),
     'SON', true, true
 );
 
 -- Patient <-> Daughter
-INSERT INTO patient_relationships (patient_user_id, caregiver_user_id, relationship_type, is_primary_contact, is_active)
+INSERT INTO patient_relationships (relationship_id, patient_user_id, caregiver_user_id, relationship_type, is_primary_contact, is_active)
 VALUES (
+    nextval('patient_relationships_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'),
     (SELECT user_id FROM users WHERE email = 'demo.daughter@test.com'),
     'DAUGHTER', false, true
 );
 
 -- Patient <-> Doctor
-INSERT INTO patient_relationships (patient_user_id, caregiver_user_id, relationship_type, is_primary_contact, is_active)
+INSERT INTO patient_relationships (relationship_id, patient_user_id, caregiver_user_id, relationship_type, is_primary_contact, is_active)
 VALUES (
+    nextval('patient_relationships_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'),
     (SELECT user_id FROM users WHERE email = 'demo.doctor@test.com'),
     'DOCTOR', false, true
@@ -60,57 +64,65 @@ VALUES (
 -- MEDICATIONS & SCHEDULES
 -- ==========================================
 -- Coraspin
-INSERT INTO medication_schedules (patient_user_id, doctor_user_id, medication_name, dosage, notes, start_date, end_date, is_prn, is_active)
+INSERT INTO medication_schedules (schedule_id, patient_user_id, doctor_user_id, medication_name, dosage, notes, start_date, end_date, is_prn, is_active)
 VALUES (
+    nextval('medication_schedules_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'),
     (SELECT user_id FROM users WHERE email = 'demo.doctor@test.com'),
     'Coraspin', '100 mg', 'Take after food.', '2024-01-01', '2025-12-31', false, true
 );
 
 -- Lantus Insulin
-INSERT INTO medication_schedules (patient_user_id, doctor_user_id, medication_name, dosage, notes, start_date, end_date, is_prn, is_active)
+INSERT INTO medication_schedules (schedule_id, patient_user_id, doctor_user_id, medication_name, dosage, notes, start_date, end_date, is_prn, is_active)
 VALUES (
+    nextval('medication_schedules_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'),
     (SELECT user_id FROM users WHERE email = 'demo.doctor@test.com'),
     'Lantus Insulin', '1 Unit', 'Before meals.', '2024-01-01', '2025-12-31', false, true
 );
 
 -- Parol (PRN - As needed)
-INSERT INTO medication_schedules (patient_user_id, doctor_user_id, medication_name, dosage, notes, start_date, end_date, is_prn, is_active)
+INSERT INTO medication_schedules (schedule_id, patient_user_id, doctor_user_id, medication_name, dosage, notes, start_date, end_date, is_prn, is_active)
 VALUES (
+    nextval('medication_schedules_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'),
     (SELECT user_id FROM users WHERE email = 'demo.doctor@test.com'),
     'Parol', '500 mg', 'If pain occurs.', '2024-01-01', '2025-12-31', true, true
 );
 
 -- SCHEDULE TIMES
-INSERT INTO medication_schedule_times (schedule_id, scheduled_time)
+INSERT INTO medication_schedule_times (time_id, schedule_id, scheduled_time)
 VALUES (
+    nextval('medication_schedule_times_seq'),
     (SELECT schedule_id FROM medication_schedules WHERE medication_name = 'Coraspin' AND patient_user_id = (SELECT user_id FROM users WHERE email = 'demo.patient@test.com')),
     '09:00:00'
 );
 
-INSERT INTO medication_schedule_times (schedule_id, scheduled_time)
+INSERT INTO medication_schedule_times (time_id, schedule_id, scheduled_time)
 VALUES (
+    nextval('medication_schedule_times_seq'),
     (SELECT schedule_id FROM medication_schedules WHERE medication_name = 'Lantus Insulin' AND patient_user_id = (SELECT user_id FROM users WHERE email = 'demo.patient@test.com')),
     '08:00:00'
 );
 
-INSERT INTO medication_schedule_times (schedule_id, scheduled_time)
+INSERT INTO medication_schedule_times (time_id, schedule_id, scheduled_time)
 VALUES (
+    nextval('medication_schedule_times_seq'),
     (SELECT schedule_id FROM medication_schedules WHERE medication_name = 'Lantus Insulin' AND patient_user_id = (SELECT user_id FROM users WHERE email = 'demo.patient@test.com')),
     '20:00:00'
 );
 
-INSERT INTO medication_schedule_times (schedule_id, scheduled_time)
+INSERT INTO medication_schedule_times (time_id, schedule_id, scheduled_time)
 VALUES (
+    nextval('medication_schedule_times_seq'),
     (SELECT schedule_id FROM medication_schedules WHERE medication_name = 'Parol' AND patient_user_id = (SELECT user_id FROM users WHERE email = 'demo.patient@test.com')),
     NULL
 );
 
 -- MEDICATION LOGS
-INSERT INTO medication_logs (schedule_time_id, patient_user_id, taken_at, status)
+INSERT INTO medication_logs (medication_log_id, schedule_time_id, patient_user_id, taken_at, status)
 VALUES (
+    nextval('medication_logs_seq'),
     (SELECT time_id FROM medication_schedule_times
      WHERE scheduled_time = '08:00:00'
      AND schedule_id = (SELECT schedule_id FROM medication_schedules WHERE medication_name = 'Lantus Insulin' AND patient_user_id = (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'))),
@@ -122,19 +134,22 @@ VALUES (
 -- ==========================================
 -- DAILY LOGS & LOCATIONS
 -- ==========================================
-INSERT INTO daily_logs (patient_user_id, description, quantity_ml, created_at)
+INSERT INTO daily_logs (daily_log_id, patient_user_id, description, quantity_ml, created_at)
 VALUES (
+    nextval('daily_logs_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'), 'Lentil soup and salad', 200, CURRENT_TIMESTAMP
 );
 
-INSERT INTO saved_locations (patient_user_id, location_name, latitude, longitude, address_details)
+INSERT INTO saved_locations (location_id, patient_user_id, location_name, latitude, longitude, address_details)
 VALUES (
+    nextval('saved_locations_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'),
     'Home', 40.765432, 29.987654, 'Downtown District No:5'
 );
 
-INSERT INTO saved_locations (patient_user_id, location_name, latitude, longitude, address_details)
+INSERT INTO saved_locations (location_id, patient_user_id, location_name, latitude, longitude, address_details)
 VALUES (
+    nextval('saved_locations_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'),
     'Summer House', 41.008237, 28.978358, 'Coastal Road No:3'
 );
@@ -142,15 +157,17 @@ VALUES (
 -- ==========================================
 -- GENERAL REMINDERS (PostgreSQL INTERVAL usage)
 -- ==========================================
-INSERT INTO general_reminders (patient_user_id, creator_user_id, title, reminder_time, is_recurring)
+INSERT INTO general_reminders (reminder_id, patient_user_id, creator_user_id, title, reminder_time, is_recurring)
 VALUES (
+    nextval('general_reminders_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'),
     (SELECT user_id FROM users WHERE email = 'demo.son@test.com'),
     'Grandson Birthday', CURRENT_TIMESTAMP + INTERVAL '2 days', false
 );
 
-INSERT INTO general_reminders (patient_user_id, creator_user_id, title, reminder_time, is_recurring)
+INSERT INTO general_reminders (reminder_id, patient_user_id, creator_user_id, title, reminder_time, is_recurring)
 VALUES (
+    nextval('general_reminders_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'),
     (SELECT user_id FROM users WHERE email = 'demo.doctor@test.com'),
     'Cardiology Appointment', CURRENT_TIMESTAMP + INTERVAL '7 days', false
@@ -161,44 +178,50 @@ VALUES (
 -- ==========================================
 
 -- 1. USER DEVICES
-INSERT INTO user_devices (user_id, device_model, os_version, biometric_enabled, last_active)
+INSERT INTO user_devices (device_id, user_id, device_model, os_version, biometric_enabled, last_active)
 VALUES (
+    nextval('user_devices_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.patient@test.com'),
     'Samsung Galaxy S23', 'Android 14', true, CURRENT_TIMESTAMP
 );
 
-INSERT INTO user_devices (user_id, device_model, os_version, biometric_enabled, last_active)
+INSERT INTO user_devices (device_id, user_id, device_model, os_version, biometric_enabled, last_active)
 VALUES (
+    nextval('user_devices_seq'),
     (SELECT user_id FROM users WHERE email = 'demo.doctor@test.com'),
     'iPhone 15 Pro', 'iOS 17', true, CURRENT_TIMESTAMP
 );
 
 -- 2. REFRESH TOKENS
 -- Setting expiry date to 30 days in the future using Postgres INTERVAL
-INSERT INTO refresh_tokens (device_id, hashed_jti, expiry_date)
+INSERT INTO refresh_tokens (token_id, device_id, hashed_jti, expiry_date)
 VALUES (
+    nextval('refresh_tokens_seq'),
     (SELECT device_id FROM user_devices WHERE user_id = (SELECT user_id FROM users WHERE email = 'demo.patient@test.com')),
     'mock_refresh_token_patient_abc123',
     CURRENT_TIMESTAMP + INTERVAL '14 days'
 );
 
-INSERT INTO refresh_tokens (device_id, hashed_jti, expiry_date)
+INSERT INTO refresh_tokens (token_id, device_id, hashed_jti, expiry_date)
 VALUES (
+    nextval('refresh_tokens_seq'),
     (SELECT device_id FROM user_devices WHERE user_id = (SELECT user_id FROM users WHERE email = 'demo.doctor@test.com')),
     'mock_refresh_token_doctor_def456',
     CURRENT_TIMESTAMP + INTERVAL '14 days'
 );
 
 -- 3. NOTIFICATION TOKENS (FCM)
-INSERT INTO notification_tokens (device_id, fcm_token, last_updated)
+INSERT INTO notification_tokens (token_id, device_id, fcm_token, last_updated)
 VALUES (
+    nextval('notification_tokens_seq'),
     (SELECT device_id FROM user_devices WHERE user_id = (SELECT user_id FROM users WHERE email = 'demo.patient@test.com')),
     'mock_fcm_token_patient_xyz',
     CURRENT_TIMESTAMP
 );
 
-INSERT INTO notification_tokens (device_id, fcm_token, last_updated)
+INSERT INTO notification_tokens (token_id, device_id, fcm_token, last_updated)
 VALUES (
+    nextval('notification_tokens_seq'),
     (SELECT device_id FROM user_devices WHERE user_id = (SELECT user_id FROM users WHERE email = 'demo.doctor@test.com')),
     'mock_fcm_token_doctor_qwe',
     CURRENT_TIMESTAMP
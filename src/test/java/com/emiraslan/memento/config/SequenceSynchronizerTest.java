@@ -0,0 +1,119 @@
+package com.emiraslan.memento.config;
+
+import com.emiraslan.memento.PostgresTestConfiguration;
+import com.emiraslan.memento.entity.medication.MedicationLog;
+import com.emiraslan.memento.entity.medication.MedicationSchedule;
+import com.emiraslan.memento.entity.medication.MedicationScheduleTime;
+import com.emiraslan.memento.entity.user.User;
+import com.emiraslan.memento.enums.MedicationStatus;
+import com.emiraslan.memento.enums.UserRole;
+import com.emiraslan.memento.repository.medication.MedicationLogRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// medication_logs_seq is shared by Hibernate's pooled-lo allocator and the skipped-log CTE, which takes one nextval per 50 rows.
+// Both must stay clear of each other and of the ids written while the tables were IDENTITY, once the sequence is synchronized
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PostgresTestConfiguration.class)
+class SequenceSynchronizerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 15, 12, 0);
+    private static final int OVERDUE_TIMES = 120; // three id blocks of the CTE, the last one partly used
+    private static final int ENTITY_LOGS = 30;
+
+    @Autowired
+    private MedicationLogRepository logRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void skippedLogIdsDoNotCollideWithPooledLoIdsAfterSynchronization() {
+        User patient = entityManager.persist(User.builder()
+                .email("sequence.test@test.com")
+                .passwordHash("hash")
+                .firstName("Sequence")
+                .lastName("Test")
+                .role(UserRole.PATIENT)
+                .build());
+        MedicationSchedule schedule = entityManager.persist(MedicationSchedule.builder()
+                .patient(patient)
+                .medicationName("Sequence Test")
+                .build());
+        List<Integer> overdueTimeIds = new ArrayList<>();
+        for (int i = 0; i < OVERDUE_TIMES; i++) {
+            overdueTimeIds.add(time(schedule, LocalTime.of(8, 0)).getTimeId());
+        }
+        // after the threshold, never picked up by the CTE
+        MedicationScheduleTime eveningTime = time(schedule, LocalTime.of(20, 0));
+        entityManager.flush();
+
+        // a row from the IDENTITY days, ahead of the sequence
+        Long sequenceValue = jdbcTemplate.queryForObject("SELECT last_value FROM medication_logs_seq", Long.class);
+        int legacyId = (int) (sequenceValue + 500);
+        jdbcTemplate.update(
+                "INSERT INTO medication_logs (medication_log_id, schedule_time_id, patient_user_id, taken_at, status) VALUES (?, ?, ?, ?, 'TAKEN')",
+                legacyId, eveningTime.getTimeId(), patient.getUserId(), NOW.minusDays(1));
+
+        new SequenceSynchronizer(jdbcTemplate, entityManagerFactory).synchronizeSequences();
+
+        // the allocator opens a block, the CTE takes the following blocks, the allocator finishes its block and opens a new one
+        List<Integer> entityIds = new ArrayList<>(persistLogs(eveningTime, patient, ENTITY_LOGS));
+        int skipped = logRepository.insertSkippedLogsForOverdueTimes(LocalTime.of(10, 0), NOW.toLocalDate().atStartOfDay(), NOW);
+        entityIds.addAll(persistLogs(eveningTime, patient, ENTITY_LOGS));
+
+        List<Integer> skippedIds = jdbcTemplate.queryForList(
+                "SELECT medication_log_id FROM medication_logs WHERE status = 'SKIPPED' AND taken_at = ? AND schedule_time_id = ANY(?)",
+                Integer.class, NOW, overdueTimeIds.toArray(new Integer[0]));
+
+        assertThat(skipped).isGreaterThanOrEqualTo(OVERDUE_TIMES);
+        assertThat(skippedIds).hasSize(OVERDUE_TIMES).doesNotHaveDuplicates();
+        assertThat(entityIds).doesNotHaveDuplicates();
+        assertThat(skippedIds).doesNotContainAnyElementsOf(entityIds);
+        assertThat(Collections.min(skippedIds)).isGreaterThan(legacyId);
+        assertThat(Collections.min(entityIds)).isGreaterThan(legacyId);
+    }
+
+    private MedicationScheduleTime time(MedicationSchedule schedule, LocalTime scheduledTime) {
+        return entityManager.persist(MedicationScheduleTime.builder()
+                .schedule(schedule)
+                .scheduledTime(scheduledTime)
+                .build());
+    }
+
+    // flushed so the rows are in the table before the CTE runs, a collision fails on the primary key
+    private List<Integer> persistLogs(MedicationScheduleTime scheduleTime, User patient, int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(entityManager.persist(MedicationLog.builder()
+                    .scheduleTime(scheduleTime)
+                    .patient(patient)
+                    .takenAt(NOW)
+                    .status(MedicationStatus.TAKEN)
+                    .build()).getMedicationLogId());
+        }
+        entityManager.flush();
+        return ids;
+    }
+}
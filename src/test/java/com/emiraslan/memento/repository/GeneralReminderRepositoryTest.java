@@ -0,0 +1,191 @@
+package com.emiraslan.memento.repository;
+
+import com.emiraslan.memento.PostgresTestConfiguration;
+import com.emiraslan.memento.entity.GeneralReminder;
+import com.emiraslan.memento.entity.user.User;
+import com.emiraslan.memento.enums.RecurrenceRule;
+import com.emiraslan.memento.enums.UserRole;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The next-occurrence arithmetic of the fired reminder advancement runs in Postgres, so it is tested against Postgres.
+// Every case checks the same contract: the new time is the first occurrence strictly after :now
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PostgresTestConfiguration.class)
+class GeneralReminderRepositoryTest {
+
+    @Autowired
+    private GeneralReminderRepository reminderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User patient;
+
+    @BeforeEach
+    void createPatient() {
+        patient = entityManager.persist(User.builder()
+                .email("reminder.test@test.com")
+                .passwordHash("hash")
+                .firstName("Reminder")
+                .lastName("Test")
+                .role(UserRole.PATIENT)
+                .build());
+    }
+
+    @Test
+    void dailyReminderSkipsTheDaysMissedDuringADowntime() {
+        GeneralReminder reminder = reminder(at("2026-03-10T08:00"), RecurrenceRule.DAILY);
+
+        assertThat(advance(reminder, at("2026-03-13T09:15"))).isEqualTo(at("2026-03-14T08:00"));
+    }
+
+    @Test
+    void dailyReminderDueExactlyAtNowMovesToTheNextDay() {
+        GeneralReminder reminder = reminder(at("2026-03-10T08:00"), RecurrenceRule.DAILY);
+
+        assertThat(advance(reminder, at("2026-03-12T08:00"))).isEqualTo(at("2026-03-13T08:00"));
+    }
+
+    @Test
+    void weeklyReminderSkipsTheWeeksMissedDuringADowntime() {
+        GeneralReminder reminder = reminder(at("2026-03-02T18:00"), RecurrenceRule.WEEKLY);
+
+        assertThat(advance(reminder, at("2026-03-20T10:00"))).isEqualTo(at("2026-03-23T18:00"));
+    }
+
+    @Test
+    void weeklyReminderDueExactlyAtNowMovesToTheNextWeek() {
+        GeneralReminder reminder = reminder(at("2026-03-02T18:00"), RecurrenceRule.WEEKLY);
+
+        assertThat(advance(reminder, at("2026-03-16T18:00"))).isEqualTo(at("2026-03-23T18:00"));
+    }
+
+    @Test
+    void monthlyReminderOnTheMonthEndIsClampedToAShorterMonth() {
+        GeneralReminder reminder = reminder(at("2026-01-31T09:00"), RecurrenceRule.MONTHLY);
+
+        assertThat(advance(reminder, at("2026-02-10T12:00"))).isEqualTo(at("2026-02-28T09:00"));
+    }
+
+    @Test
+    void monthlyReminderOnTheMonthEndSkipsAClampedDayThatAlreadyPassed() {
+        // age() counts 0 months (28 days) here, Jan 31 + 1 month = Feb 28 09:00 is already before :now
+        GeneralReminder reminder = reminder(at("2026-01-31T09:00"), RecurrenceRule.MONTHLY);
+
+        assertThat(advance(reminder, at("2026-02-28T09:30"))).isEqualTo(at("2026-03-31T09:00"));
+    }
+
+    @Test
+    void monthlyReminderSkipsTheMonthsMissedDuringADowntime() {
+        GeneralReminder reminder = reminder(at("2026-01-15T09:00"), RecurrenceRule.MONTHLY);
+
+        assertThat(advance(reminder, at("2026-04-20T12:00"))).isEqualTo(at("2026-05-15T09:00"));
+    }
+
+    @Test
+    void monthlyReminderDueExactlyAtNowMovesToTheNextMonth() {
+        GeneralReminder reminder = reminder(at("2026-01-15T09:00"), RecurrenceRule.MONTHLY);
+
+        assertThat(advance(reminder, at("2026-03-15T09:00"))).isEqualTo(at("2026-04-15T09:00"));
+    }
+
+    @Test
+    void yearlyReminderOnALeapDaySkipsAClampedDayThatAlreadyPassed() {
+        GeneralReminder reminder = reminder(at("2024-02-29T09:00"), RecurrenceRule.YEARLY);
+
+        assertThat(advance(reminder, at("2025-02-28T12:00"))).isEqualTo(at("2026-02-28T09:00"));
+    }
+
+    @Test
+    void yearlyReminderSkipsTheYearsMissedDuringADowntime() {
+        GeneralReminder reminder = reminder(at("2020-06-01T10:00"), RecurrenceRule.YEARLY);
+
+        assertThat(advance(reminder, at("2023-07-01T00:00"))).isEqualTo(at("2024-06-01T10:00"));
+    }
+
+    @Test
+    void yearlyReminderDueExactlyAtNowMovesToTheNextYear() {
+        GeneralReminder reminder = reminder(at("2020-06-01T10:00"), RecurrenceRule.YEARLY);
+
+        assertThat(advance(reminder, at("2022-06-01T10:00"))).isEqualTo(at("2023-06-01T10:00"));
+    }
+
+    @Test
+    void reminderEditedAfterItFiredIsNotAdvanced() {
+        GeneralReminder reminder = reminder(at("2026-03-10T08:00"), RecurrenceRule.DAILY);
+        LocalDateTime firedTime = reminder.getReminderTime();
+        // edited to another time that is also past :now before the fired batch was persisted
+        reminder.setReminderTime(at("2026-03-11T07:00"));
+        entityManager.flush();
+
+        int advanced = reminderRepository.advanceDailyReminders(
+                new Integer[]{reminder.getReminderId()}, new LocalDateTime[]{firedTime}, at("2026-03-12T00:00"));
+
+        assertThat(advanced).isZero();
+        assertThat(reload(reminder)).isEqualTo(at("2026-03-11T07:00"));
+    }
+
+    @Test
+    void oneShotReminderIsDeletedOnlyForItsFiredTime() {
+        GeneralReminder fired = reminder(at("2026-03-10T08:00"), null);
+        GeneralReminder edited = reminder(at("2026-03-10T08:00"), null);
+        edited.setReminderTime(at("2026-03-10T08:30"));
+        entityManager.flush();
+
+        int deleted = reminderRepository.deleteFiredOneShotReminders(
+                new Integer[]{fired.getReminderId(), edited.getReminderId()},
+                new LocalDateTime[]{at("2026-03-10T08:00"), at("2026-03-10T08:00")});
+        entityManager.clear();
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(reminderRepository.findById(fired.getReminderId())).isEmpty();
+        assertThat(reminderRepository.findById(edited.getReminderId())).isPresent();
+    }
+
+    private GeneralReminder reminder(LocalDateTime time, RecurrenceRule rule) {
+        GeneralReminder reminder = entityManager.persist(GeneralReminder.builder()
+                .patient(patient)
+                .title("Reminder")
+                .reminderTime(time)
+                .isRecurring(rule != null)
+                .recurrenceRule(rule)
+                .build());
+        entityManager.flush();
+        return reminder;
+    }
+
+    // advances the reminder as fired at its current time, returns its new time
+    private LocalDateTime advance(GeneralReminder reminder, LocalDateTime now) {
+        Integer[] ids = {reminder.getReminderId()};
+        LocalDateTime[] firedTimes = {reminder.getReminderTime()};
+        int advanced = switch (reminder.getRecurrenceRule()) {
+            case DAILY -> reminderRepository.advanceDailyReminders(ids, firedTimes, now);
+            case WEEKLY -> reminderRepository.advanceWeeklyReminders(ids, firedTimes, now);
+            case MONTHLY -> reminderRepository.advanceMonthlyReminders(ids, firedTimes, now);
+            case YEARLY -> reminderRepository.advanceYearlyReminders(ids, firedTimes, now);
+        };
+        assertThat(advanced).isEqualTo(1);
+        return reload(reminder);
+    }
+
+    // the native UPDATE bypasses the persistence context
+    private LocalDateTime reload(GeneralReminder reminder) {
+        entityManager.clear();
+        return entityManager.find(GeneralReminder.class, reminder.getReminderId()).getReminderTime();
+    }
+
+    private static LocalDateTime at(String time) {
+        return LocalDateTime.parse(time);
+    }
+}
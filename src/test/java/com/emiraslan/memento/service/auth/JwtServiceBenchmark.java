@@ -0,0 +1,93 @@
+package com.emiraslan.memento.service.auth;
+
+import com.emiraslan.memento.entity.user.User;
+import com.emiraslan.memento.enums.UserRole;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Access tokens validated per second on one thread (one core), before and after the parse-once JwtService:
+// - perClaimParsing: the old filter path. extractUserId, then isTokenValid (extractUserId + extractExpiration), every parse
+//   decoding the key and building a new parser
+// - verifyOnce: JwtService.verify, one parse with the key and parser built at startup
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.emiraslan.memento.service.auth.JwtServiceBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class JwtServiceBenchmark {
+
+    // the development secret of application.properties
+    private static final String SECRET = "280abf9c42aa9fd41737a546daa38325ef0f8a09c83c7d5e55001dbcdb226fc0";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        jwtService.init();
+
+        User user = User.builder()
+                .userId(42)
+                .email("benchmark@test.com")
+                .role(UserRole.PATIENT)
+                .build();
+        token = jwtService.generateAccessToken(Map.of(), user);
+    }
+
+    @Benchmark
+    public void perClaimParsing(Blackhole blackhole) {
+        String userId = parseWithNewParser(token).getSubject();
+        blackhole.consume(userId);
+        blackhole.consume(userId.equals(parseWithNewParser(token).getSubject())
+                && !parseWithNewParser(token).getExpiration().before(new Date()));
+    }
+
+    @Benchmark
+    public JwtService.VerifiedJwt verifyOnce() {
+        return jwtService.verify(token);
+    }
+
+    // what every extract* call did before the change
+    private static Claims parseWithNewParser(String token) {
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}